@@ -0,0 +1,54 @@
+#!/bin/bash
+# 分别以平台线程和虚拟线程模式启动服务并执行同一压测，输出两份k6汇总用于对比。
+# 需要 JDK 21+、k6，以及已启动的 MySQL/Redis。
+# 用法: ./compare-thread-modes.sh [jar路径]
+set -e
+
+JAR=${1:-../target/health-management-0.0.1-SNAPSHOT.jar}
+PORT=${PORT:-8080}
+BASE_URL="http://localhost:${PORT}/api"
+OUT_DIR=${OUT_DIR:-./results}
+mkdir -p "$OUT_DIR"
+
+run_mode() {
+  local mode=$1
+  local virtual=$2
+  echo "==> ${mode}: spring.threads.virtual.enabled=${virtual}"
+  java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+    > "$OUT_DIR/${mode}-server.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null" EXIT
+
+  for _ in $(seq 1 60); do
+    if curl -sf "${BASE_URL}/api/drug/popular" > /dev/null; then
+      break
+    fi
+    sleep 2
+  done
+
+  k6 run -e BASE_URL="$BASE_URL" --summary-export "$OUT_DIR/${mode}-summary.json" thread-mode.js \
+    | tee "$OUT_DIR/${mode}-k6.txt"
+  if [ "$virtual" = "true" ]; then
+    curl -s "${BASE_URL}/api/system/virtual-threads/pinning" > "$OUT_DIR/${mode}-pinning.json"
+  fi
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+echo
+echo "==> 对比（http_req_duration / http_reqs / 失败率）"
+for mode in platform virtual; do
+  python3 - "$OUT_DIR/${mode}-summary.json" "$mode" <<'PY'
+import json, sys
+m = json.load(open(sys.argv[1]))["metrics"]
+d = m["http_req_duration"]
+print(f'{sys.argv[2]:>9}: rps={m["http_reqs"]["rate"]:.1f} '
+      f'p50={d["p(50)"]:.1f}ms p95={d["p(95)"]:.1f}ms p99={d["p(99)"]:.1f}ms '
+      f'failed={m["http_req_failed"]["value"] * 100:.2f}%')
+PY
+done
@@ -0,0 +1,43 @@
+// 平台线程 / 虚拟线程模式对比压测脚本（k6）
+// 用法: k6 run -e BASE_URL=http://localhost:8080/api -e BARCODES=6901234567890,6909876543210 thread-mode.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const BARCODES = (__ENV.BARCODES || '6901234567890').split(',');
+const KEYWORDS = (__ENV.KEYWORDS || '阿莫西林,布洛芬,感冒').split(',');
+
+export const options = {
+  scenarios: {
+    ramp: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: 100 },
+        { duration: '60s', target: 400 },
+        { duration: '60s', target: 800 },
+        { duration: '30s', target: 0 },
+      ],
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function pick(list) {
+  return list[Math.floor(Math.random() * list.length)];
+}
+
+export default function () {
+  // 混合流量：条形码查询（可能访问第三方API）、关键词搜索、纯本地读取
+  const r = Math.random();
+  let res;
+  if (r < 0.5) {
+    res = http.get(`${BASE_URL}/api/drug/barcode/${pick(BARCODES)}`, { tags: { name: 'barcode' } });
+  } else if (r < 0.8) {
+    res = http.get(`${BASE_URL}/api/drug/search?keyword=${encodeURIComponent(pick(KEYWORDS))}&page=1&size=10`,
+      { tags: { name: 'search' } });
+  } else {
+    res = http.get(`${BASE_URL}/api/drug/popular`, { tags: { name: 'popular' } });
+  }
+  check(res, { 'status is 200': (x) => x.status === 200 });
+}
@@ -0,0 +1,136 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.health.entity.Drug;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 药品搜索响应解析基准：整体转字符串+JSONObject树逐字段拷贝 vs 字节流直接绑定
+ * <p>
+ * 运行：mvn -Pjmh test-compile exec:exec，附带 -prof gc 可对比每次解析的分配字节数。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrugApiParseBenchmark {
+
+    /**
+     * 每页条数
+     */
+    @Param({"10", "50"})
+    private int pageSize;
+
+    /**
+     * 说明书类长文本字段的长度（字符）
+     */
+    @Param({"200", "2000"})
+    private int textLength;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder(textLength);
+        while (text.length() < textLength) {
+            text.append("本品用于缓解轻至中度疼痛，如头痛、关节痛、偏头痛、牙痛、肌肉痛、神经痛、痛经。");
+        }
+        String longText = text.substring(0, textLength);
+
+        JSONArray list = new JSONArray();
+        for (int i = 0; i < pageSize; i++) {
+            JSONObject item = new JSONObject();
+            item.put("id", "D" + i);
+            item.put("name", "布洛芬缓释胶囊" + i);
+            item.put("trademark", "芬必得");
+            item.put("manufacturer", "中美天津史克制药有限公司");
+            item.put("specification", "0.3g*20粒");
+            item.put("dosageForm", "胶囊剂");
+            item.put("ingredients", longText);
+            item.put("indications", longText);
+            item.put("usage", longText);
+            item.put("contraindications", longText);
+            item.put("precautions", longText);
+            item.put("storage", "密封保存");
+            item.put("validity", "24个月");
+            item.put("approvalNumber", "国药准字H1090036" + i);
+            item.put("imageUrl", "https://example.com/drug/" + i + ".jpg");
+            item.put("price", 23.5);
+            list.add(item);
+        }
+        JSONObject data = new JSONObject();
+        data.put("list", list);
+        data.put("total", pageSize);
+        JSONObject envelope = new JSONObject();
+        envelope.put("code", 200);
+        envelope.put("msg", "success");
+        envelope.put("data", data);
+        payload = envelope.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 原实现：读成字符串，解析为JSONObject树，再逐字段拷贝
+     */
+    @Benchmark
+    public List<Drug> treeCopy() {
+        String body = new String(payload, StandardCharsets.UTF_8);
+        List<Drug> drugs = new ArrayList<>();
+        JSONObject json = JSONObject.parseObject(body);
+        if (json.getInteger("code") == 200) {
+            JSONArray list = json.getJSONObject("data").getJSONArray("list");
+            for (int i = 0; i < list.size(); i++) {
+                JSONObject item = list.getJSONObject(i);
+                Drug drug = new Drug();
+                drug.setName(item.getString("name"));
+                drug.setManufacturer(item.getString("manufacturer"));
+                drug.setSpecification(item.getString("specification"));
+                drug.setDosageForm(item.getString("dosageForm"));
+                drug.setMainIngredient(item.getString("ingredients"));
+                drug.setIndications(item.getString("indications"));
+                drug.setDosageUsage(item.getString("usage"));
+                drug.setContraindications(item.getString("contraindications"));
+                drug.setPrecautions(item.getString("precautions"));
+                drug.setStorageConditions(item.getString("storage"));
+                drug.setValidityPeriod(item.getString("validity"));
+                drug.setApprovalNumber(item.getString("approvalNumber"));
+                drug.setImageUrl(item.getString("imageUrl"));
+                drug.setPrice(item.getBigDecimal("price"));
+                drug.setCreatedAt(LocalDateTime.now());
+                drug.setUpdatedAt(LocalDateTime.now());
+                drugs.add(drug);
+            }
+        }
+        return drugs;
+    }
+
+    /**
+     * 新实现：从字节流直接绑定到Drug
+     */
+    @Benchmark
+    public List<Drug> streamBind() {
+        return DrugApiResponseParser.parseList(new ByteArrayInputStream(payload), DrugApiResponseParser.SEARCH);
+    }
+}
@@ -0,0 +1,83 @@
+package com.health.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 药品导入文件解析基准：100万行CSV/JSONL的流式解析与校验耗时（不含写库）
+ * <p>
+ * 运行：mvn -Pjmh test-compile exec:exec。写库在内的端到端吞吐见 loadtest/drug-import-1m.sh。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class DrugImportParseBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"CSV", "JSONL"})
+    private String format;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        StringBuilder content = new StringBuilder(rows * 160);
+        if ("CSV".equals(format)) {
+            content.append("name,barcode,approval_number,manufacturer,specification,dosage_form,indications,price,status\n");
+            for (int i = 0; i < rows; i++) {
+                content.append("布洛芬缓释胶囊").append(i).append(",69").append(100000000L + i)
+                        .append(",国药准字H").append(10000000 + i)
+                        .append(",中美天津史克制药有限公司,0.3g*20粒,胶囊剂,\"用于缓解轻至中度疼痛，如头痛、关节痛\",23.50,1\n");
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                content.append("{\"name\":\"布洛芬缓释胶囊").append(i).append("\",\"barcode\":\"69").append(100000000L + i)
+                        .append("\",\"approvalNumber\":\"国药准字H").append(10000000 + i)
+                        .append("\",\"manufacturer\":\"中美天津史克制药有限公司\",\"specification\":\"0.3g*20粒\"")
+                        .append(",\"dosageForm\":\"胶囊剂\",\"indications\":\"用于缓解轻至中度疼痛，如头痛、关节痛\"")
+                        .append(",\"price\":23.50,\"status\":1}\n");
+            }
+        }
+        payload = content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 逐条读取并校验全部记录，返回有效记录数
+     */
+    @Benchmark
+    public long parse() throws IOException {
+        long valid = 0;
+        try (DrugImportReader reader = new DrugImportReader(new ByteArrayInputStream(payload),
+                DrugImportReader.Format.valueOf(format))) {
+            DrugImportReader.Record record;
+            while ((record = reader.next()) != null) {
+                if (record.drug != null) {
+                    valid++;
+                }
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,67 @@
+package com.health.common;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> list;
+
+    /**
+     * 下一页续查令牌，没有更多数据时为null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore;
+
+    /**
+     * 总数，未请求统计时为null
+     */
+    private Long total;
+
+    /**
+     * 总数是否为估算值
+     */
+    private Boolean totalEstimated;
+
+    /**
+     * 总数统计方式
+     */
+    public enum CountMode {
+        /**
+         * 不统计
+         */
+        NONE,
+        /**
+         * 精确统计
+         */
+        EXACT,
+        /**
+         * 估算（取表统计信息，无过滤条件时可用）
+         */
+        ESTIMATE;
+
+        public static CountMode of(String value) {
+            for (CountMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.health.common;
+
+import com.health.entity.Drug;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 药品列表接口的字段投影（fields 参数）
+ * <p>
+ * 字段名为 Drug 的属性名，逗号分隔；只有白名单内的属性可以选择，对应的列名下推到 SQL 的 SELECT 列表，
+ * 说明书类大文本列不被选择时不会从数据库读出，也不会被序列化。id 始终返回。
+ * 未传 fields 时使用列表页默认的精简投影，传 all 返回全部字段。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public final class DrugProjection {
+
+    /**
+     * 可选属性到列名及读写方法的映射，顺序与 Base_Column_List 一致；新增字段只需在此登记
+     */
+    private static final Map<String, Field> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        register("id", "id", Drug::getId, Drug::setId);
+        register("name", "name", Drug::getName, Drug::setName);
+        register("barcode", "barcode", Drug::getBarcode, Drug::setBarcode);
+        register("approvalNumber", "approval_number", Drug::getApprovalNumber, Drug::setApprovalNumber);
+        register("manufacturer", "manufacturer", Drug::getManufacturer, Drug::setManufacturer);
+        register("specification", "specification", Drug::getSpecification, Drug::setSpecification);
+        register("dosageForm", "dosage_form", Drug::getDosageForm, Drug::setDosageForm);
+        register("mainIngredient", "main_ingredient", Drug::getMainIngredient, Drug::setMainIngredient);
+        register("indications", "indications", Drug::getIndications, Drug::setIndications);
+        register("contraindications", "contraindications", Drug::getContraindications, Drug::setContraindications);
+        register("adverseReactions", "adverse_reactions", Drug::getAdverseReactions, Drug::setAdverseReactions);
+        register("dosageUsage", "dosage_usage", Drug::getDosageUsage, Drug::setDosageUsage);
+        register("precautions", "precautions", Drug::getPrecautions, Drug::setPrecautions);
+        register("drugInteractions", "drug_interactions", Drug::getDrugInteractions, Drug::setDrugInteractions);
+        register("storageConditions", "storage_conditions", Drug::getStorageConditions, Drug::setStorageConditions);
+        register("validityPeriod", "validity_period", Drug::getValidityPeriod, Drug::setValidityPeriod);
+        register("imageUrl", "image_url", Drug::getImageUrl, Drug::setImageUrl);
+        register("price", "price", Drug::getPrice, Drug::setPrice);
+        register("drugId", "drug_id", Drug::getDrugId, Drug::setDrugId);
+        register("complete", "is_complete", Drug::getComplete, Drug::setComplete);
+        register("dataSource", "data_source", Drug::getDataSource, Drug::setDataSource);
+        register("status", "status", Drug::getStatus, Drug::setStatus);
+        register("createdAt", "created_at", Drug::getCreatedAt, Drug::setCreatedAt);
+        register("updatedAt", "updated_at", Drug::getUpdatedAt, Drug::setUpdatedAt);
+    }
+
+    private static final String ALL = "all";
+
+    /**
+     * 全部字段
+     */
+    public static final DrugProjection FULL = new DrugProjection(COLUMNS.keySet());
+
+    /**
+     * 列表页默认投影：名称、厂家、规格和图片
+     */
+    public static final DrugProjection LIST = new DrugProjection(
+            List.of("id", "name", "manufacturer", "specification", "imageUrl"));
+
+    private final Set<String> properties;
+
+    private DrugProjection(Iterable<String> properties) {
+        Set<String> set = new LinkedHashSet<>();
+        set.add("id");
+        for (String property : properties) {
+            set.add(property);
+        }
+        this.properties = Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * 解析 fields 参数，为空时返回列表默认投影
+     *
+     * @throws IllegalArgumentException 包含不支持的字段
+     */
+    public static DrugProjection parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return LIST;
+        }
+        if (ALL.equalsIgnoreCase(fields.trim())) {
+            return FULL;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String property = field.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            if (!COLUMNS.containsKey(property)) {
+                throw new IllegalArgumentException("不支持的字段: " + property);
+            }
+            selected.add(property);
+        }
+        return new DrugProjection(selected);
+    }
+
+    /**
+     * 追加内部处理需要的属性（如去重用的条形码、游标用的创建时间），仅影响查询列
+     */
+    public DrugProjection with(String... extra) {
+        List<String> merged = new ArrayList<>(properties);
+        for (String property : extra) {
+            if (!COLUMNS.containsKey(property)) {
+                throw new IllegalArgumentException("不支持的字段: " + property);
+            }
+            merged.add(property);
+        }
+        return new DrugProjection(merged);
+    }
+
+    /**
+     * 是否为全部字段
+     */
+    public boolean isFull() {
+        return properties.size() == COLUMNS.size();
+    }
+
+    /**
+     * 是否只包含指定属性集合中的字段
+     */
+    public boolean isCoveredBy(Set<String> available) {
+        return available.containsAll(properties);
+    }
+
+    /**
+     * 下推到 SQL 的列名列表，全部字段时返回null（使用 Base_Column_List）
+     * <p>
+     * 列名只来自白名单，可以安全地以 ${} 拼接到 SELECT 列表。
+     */
+    public List<String> columns() {
+        if (isFull()) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>(properties.size());
+        for (String property : properties) {
+            columns.add(COLUMNS.get(property).column);
+        }
+        return columns;
+    }
+
+    /**
+     * 选择的属性，顺序与 Base_Column_List 一致
+     */
+    public Set<String> properties() {
+        return properties;
+    }
+
+    /**
+     * 属性对应的列名
+     */
+    public static String columnOf(String property) {
+        Field field = COLUMNS.get(property);
+        return field == null ? null : field.column;
+    }
+
+    /**
+     * 读取药品的指定属性值（导出等按属性逐列输出的场景）
+     */
+    public static Object valueOf(Drug drug, String property) {
+        Field field = COLUMNS.get(property);
+        return field == null ? null : field.getter.apply(drug);
+    }
+
+    /**
+     * 按投影裁剪内存中的药品（API结果、缓存、前缀树等非SQL来源），未选择的字段置空不输出
+     */
+    public List<Drug> apply(List<Drug> drugs) {
+        if (isFull()) {
+            return drugs;
+        }
+        List<Drug> projected = new ArrayList<>(drugs.size());
+        for (Drug drug : drugs) {
+            projected.add(apply(drug));
+        }
+        return projected;
+    }
+
+    private Drug apply(Drug source) {
+        Drug target = new Drug();
+        for (String property : properties) {
+            COLUMNS.get(property).copier.accept(source, target);
+        }
+        return target;
+    }
+
+    private static <T> void register(String property, String column, Function<Drug, T> getter,
+                                     BiConsumer<Drug, T> setter) {
+        COLUMNS.put(property, new Field(column, getter::apply,
+                (source, target) -> setter.accept(target, getter.apply(source))));
+    }
+
+    /**
+     * 可选属性的列名、读取方法和复制方法
+     */
+    private static final class Field {
+
+        private final String column;
+        private final Function<Drug, Object> getter;
+        private final BiConsumer<Drug, Drug> copier;
+
+        Field(String column, Function<Drug, Object> getter, BiConsumer<Drug, Drug> copier) {
+            this.column = column;
+            this.getter = getter;
+            this.copier = copier;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.health.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页的续查令牌
+ * <p>
+ * 记录上一页最后一条数据的排序键，对调用方是不透明的字符串。
+ * 按创建时间排序时排序键为 (createdAt, id)，按相关度排序时为 (score, id)。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public class SeekCursor {
+
+    private static final String TYPE_CREATED = "c";
+    private static final String TYPE_SCORE = "s";
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final Long score;
+    private final Long id;
+
+    private SeekCursor(LocalDateTime createdAt, Long score, Long id) {
+        this.createdAt = createdAt;
+        this.score = score;
+        this.id = id;
+    }
+
+    /**
+     * 按 (createdAt, id) 排序的游标
+     */
+    public static SeekCursor ofCreated(LocalDateTime createdAt, Long id) {
+        return new SeekCursor(createdAt, null, id);
+    }
+
+    /**
+     * 按 (score, id) 排序的游标
+     */
+    public static SeekCursor ofScore(long score, Long id) {
+        return new SeekCursor(null, score, id);
+    }
+
+    /**
+     * 解析续查令牌，空串表示从第一页开始返回null
+     *
+     * @throws IllegalArgumentException 令牌格式不正确
+     */
+    public static SeekCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            Long id = Long.valueOf(parts[2]);
+            if (TYPE_CREATED.equals(parts[0])) {
+                return ofCreated(LocalDateTime.parse(parts[1]), id);
+            }
+            if (TYPE_SCORE.equals(parts[0])) {
+                return ofScore(Long.parseLong(parts[1]), id);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+        throw new IllegalArgumentException("无效的分页游标");
+    }
+
+    /**
+     * 编码为续查令牌
+     */
+    public String encode() {
+        String raw = createdAt != null
+                ? TYPE_CREATED + SEPARATOR + createdAt + SEPARATOR + id
+                : TYPE_SCORE + SEPARATOR + score + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isCreatedOrder() {
+        return createdAt != null;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getScore() {
+        return score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,23 @@
+package com.health.common;
+
+import lombok.Data;
+
+/**
+ * 插入或合并结果
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+public class UpsertResult<T> {
+
+    /**
+     * 写入后的记录
+     */
+    private T record;
+
+    /**
+     * true 为新建，false 为合并到已有记录
+     */
+    private Boolean created;
+}
@@ -0,0 +1,42 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * API调用日志异步写入配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.api-call-log")
+public class ApiCallLogConfig {
+
+    /**
+     * 内存缓冲区容量，写满后新日志直接丢弃并计数
+     */
+    private int bufferCapacity = 8192;
+
+    /**
+     * 单次批量插入的最大条数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 刷盘间隔，单位毫秒
+     */
+    private long flushIntervalMs = 1000;
+
+    /**
+     * 请求参数最大保存长度
+     */
+    private int maxParamsLength = 1000;
+
+    /**
+     * 错误信息最大保存长度
+     */
+    private int maxErrorLength = 500;
+}
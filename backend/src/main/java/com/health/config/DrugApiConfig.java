@@ -50,6 +50,21 @@ public class DrugApiConfig {
      */
     private String drugDetailPath;
     
+    /**
+     * 批量条形码查询时调用API的最大并发数
+     */
+    private int batchConcurrency = 8;
+    
+    /**
+     * 批量条形码查询的整体超时时间，单位毫秒
+     */
+    private long batchTimeoutMs = 5000;
+    
+    /**
+     * 批量条形码查询单次最多条形码数
+     */
+    private int batchMaxSize = 100;
+    
     /**
      * 获取完整的条形码查询URL
      */
@@ -0,0 +1,92 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品API熔断与限流配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-api.resilience")
+public class DrugApiResilienceConfig {
+
+    /**
+     * 熔断统计的滑动窗口大小（调用次数）
+     */
+    private int windowSize = 50;
+
+    /**
+     * 窗口内至少有多少次调用才开始判断是否熔断
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * 失败率阈值
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * 慢调用率阈值
+     */
+    private double slowCallRateThreshold = 0.8;
+
+    /**
+     * 超过该耗时视为慢调用，单位毫秒
+     */
+    private long slowCallThresholdMs = 3000;
+
+    /**
+     * 熔断打开后多久进入半开，单位毫秒
+     */
+    private long openDurationMs = 30000;
+
+    /**
+     * 半开状态放行的试探调用数
+     */
+    private int halfOpenPermits = 5;
+
+    /**
+     * 并发上限初始值
+     */
+    private int initialLimit = 20;
+
+    /**
+     * 并发上限下限
+     */
+    private int minLimit = 2;
+
+    /**
+     * 并发上限上限
+     */
+    private int maxLimit = 100;
+
+    /**
+     * 并发上限调整的平滑系数，越小调整越平缓
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * 单次API调用的最长等待时间，单位毫秒，实际还受请求剩余时间约束
+     */
+    private long callTimeoutMs = 5000;
+
+    /**
+     * 请求剩余时间低于该值时不再调用API，单位毫秒
+     */
+    private long minBudgetMs = 200;
+
+    /**
+     * 请求整体的默认时间预算，单位毫秒
+     */
+    private long requestTimeoutMs = 8000;
+
+    /**
+     * 客户端可通过该请求头缩短时间预算（毫秒），不能超过默认值
+     */
+    private String timeoutHeader = "X-Request-Timeout-Ms";
+}
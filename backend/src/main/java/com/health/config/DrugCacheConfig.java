@@ -0,0 +1,52 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品缓存配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.cache.drug")
+public class DrugCacheConfig {
+
+    /**
+     * 本地缓存（L1）最大条目数
+     */
+    private int localMaxSize = 2000;
+
+    /**
+     * 本地缓存（L1）过期时间，单位秒
+     */
+    private long localTtlSeconds = 300;
+
+    /**
+     * Redis缓存（L2）过期时间，单位秒
+     */
+    private long redisTtlSeconds = 3600;
+
+    /**
+     * Redis键前缀
+     */
+    private String redisKeyPrefix = "health:drug:barcode:";
+
+    /**
+     * 否定缓存（API明确没有该药品的条形码）本地最大条目数，与正常缓存分开计数
+     */
+    private int negativeMaxSize = 10000;
+
+    /**
+     * 否定缓存过期时间（本地与Redis），单位秒
+     */
+    private long negativeTtlSeconds = 600;
+
+    /**
+     * 是否在查询前校验 EAN/UPC 校验位，校验失败且本地没有该条形码时直接返回未找到
+     */
+    private boolean checksumValidation = true;
+}
@@ -0,0 +1,57 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品信息后台补全配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-enrich")
+public class DrugEnrichmentConfig {
+
+    /**
+     * 是否启用后台补全
+     */
+    private boolean enabled = true;
+
+    /**
+     * 两轮补全之间的间隔，单位毫秒
+     */
+    private long intervalMs = 60000;
+
+    /**
+     * 每轮最多补全的药品数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 同时进行的API调用数
+     */
+    private int parallelism = 4;
+
+    /**
+     * 每秒最多发起的API调用数
+     */
+    private double ratePerSecond = 5;
+
+    /**
+     * 优先补全时参考的热门药品数（按周热度）
+     */
+    private int popularScanSize = 500;
+
+    /**
+     * API未返回可用数据时，再次尝试前的等待时间，单位小时
+     */
+    private long retryIntervalHours = 24;
+
+    /**
+     * 单轮调用失败达到该次数后提前结束本轮
+     */
+    private int maxFailuresPerRun = 20;
+}
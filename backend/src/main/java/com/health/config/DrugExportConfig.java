@@ -0,0 +1,27 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品目录导出配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-export")
+public class DrugExportConfig {
+
+    /**
+     * 同时进行的导出数，每个导出在整个过程中占用一个数据库连接
+     */
+    private int maxConcurrent = 2;
+
+    /**
+     * 写出缓冲区大小（字符），缓冲区满即写入响应流
+     */
+    private int bufferSize = 65536;
+}
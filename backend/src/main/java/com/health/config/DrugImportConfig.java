@@ -0,0 +1,52 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品批量导入配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-import")
+public class DrugImportConfig {
+
+    /**
+     * 上传文件暂存目录，续导时从这里重新读取
+     */
+    private String storagePath = "./data/import/";
+
+    /**
+     * 每批写入的记录数（一条多行 INSERT ... ON DUPLICATE KEY UPDATE）
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 并行写库的线程数
+     */
+    private int writerThreads = 4;
+
+    /**
+     * 等待写库的批次队列容量，队列满时读取线程阻塞等待
+     */
+    private int queueCapacity = 8;
+
+    /**
+     * 任务进度中保留的校验错误样例数
+     */
+    private int maxErrorSamples = 20;
+
+    /**
+     * 断点写入数据库的最小间隔，单位毫秒
+     */
+    private long checkpointIntervalMs = 1000;
+
+    /**
+     * 单个批次遇到死锁、锁等待超时时的最大重试次数
+     */
+    private int maxRetries = 3;
+}
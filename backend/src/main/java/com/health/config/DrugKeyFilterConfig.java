@@ -0,0 +1,32 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品条形码、批准文号布隆过滤器配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-key-filter")
+public class DrugKeyFilterConfig {
+
+    /**
+     * 是否启用，关闭后每次保存都先查询数据库判断是否已存在
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预计的键数量（条形码与批准文号合计），实际数量更多时按实际数量的2倍构建
+     */
+    private long expectedInsertions = 1000000;
+
+    /**
+     * 期望误判率
+     */
+    private double falsePositiveRate = 0.01;
+}
@@ -0,0 +1,47 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品详情响应字节缓存配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.cache.drug-response")
+public class DrugResponseCacheConfig {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存的响应条数
+     */
+    private int maxSize = 500;
+
+    /**
+     * 过期时间，单位秒；也是响应中timestamp字段的最大滞后时间
+     */
+    private long ttlSeconds = 60;
+
+    /**
+     * 同一资源在候选窗口内被请求达到该次数后才缓存，避免冷门药品挤占缓存
+     */
+    private int admitAfterHits = 2;
+
+    /**
+     * 是否预先生成gzip压缩版本
+     */
+    private boolean gzipEnabled = true;
+
+    /**
+     * 序列化结果达到该字节数才预先压缩
+     */
+    private int gzipMinBytes = 1024;
+}
@@ -0,0 +1,42 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品搜索缓存配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.cache.drug-search")
+public class DrugSearchCacheConfig {
+
+    /**
+     * 缓存新鲜期，单位秒，过期后仍返回旧数据并在后台刷新
+     */
+    private long freshTtlSeconds = 86400;
+
+    /**
+     * 过期后允许继续返回旧数据的时长，单位秒，超过后由清理任务删除
+     */
+    private long staleTtlSeconds = 604800;
+
+    /**
+     * 命中次数批量写库间隔，单位毫秒
+     */
+    private long hitFlushIntervalMs = 10000;
+
+    /**
+     * 过期缓存清理间隔，单位毫秒
+     */
+    private long cleanupIntervalMs = 3600000;
+
+    /**
+     * 单次清理删除的最大行数
+     */
+    private int cleanupBatchSize = 1000;
+}
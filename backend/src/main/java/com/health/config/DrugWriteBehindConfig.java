@@ -0,0 +1,32 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 药品异步落库配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.drug-write-behind")
+public class DrugWriteBehindConfig {
+
+    /**
+     * 待落库队列容量，队列满时退化为同步保存
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单次批量插入的最大条数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 刷盘间隔，单位毫秒
+     */
+    private long flushIntervalMs = 500;
+}
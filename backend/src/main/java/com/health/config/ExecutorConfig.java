@@ -0,0 +1,135 @@
+package com.health.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置类
+ * <p>
+ * 设置 spring.threads.virtual.enabled=true 且运行在 JDK 21 及以上时，Tomcat请求处理、定时任务
+ * （由Spring Boot自动配置）以及这里声明的异步执行器都改用虚拟线程；否则保持平台线程池。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    @Autowired
+    private DrugApiConfig drugApiConfig;
+
+    @Autowired
+    private DrugEnrichmentConfig drugEnrichmentConfig;
+
+    @Autowired
+    private DrugImportConfig drugImportConfig;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * 药品API调用线程池，线程数即为同时调用第三方API的并发上限
+     * <p>
+     * 虚拟线程模式下仍保留固定线程数作为并发上限，只是线程本身改为虚拟线程，阻塞等待API时不占用载体线程。
+     */
+    @Bean
+    public ThreadPoolTaskExecutor drugApiExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(drugApiConfig.getBatchConcurrency());
+        executor.setMaxPoolSize(drugApiConfig.getBatchConcurrency());
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("drug-api-");
+        if (useVirtualThreads()) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("drug-api-").getVirtualThreadFactory());
+        }
+        // 队列满时由调用线程执行，形成背压而不是丢弃
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 药品信息后台补全线程池：一个线程负责限速提交和等待一轮结束，其余线程调用API，
+     * 并发由补全任务自身控制，这里只提供与用户请求、调度线程隔离的线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor drugEnrichExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(drugEnrichmentConfig.getParallelism() + 1);
+        executor.setMaxPoolSize(drugEnrichmentConfig.getParallelism() + 1);
+        executor.setQueueCapacity(drugEnrichmentConfig.getParallelism());
+        executor.setThreadNamePrefix("drug-enrich-");
+        if (useVirtualThreads()) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("drug-enrich-").getVirtualThreadFactory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 药品批量导入线程池：一个读取线程加若干写库线程，同一时间只运行一个导入任务
+     */
+    @Bean
+    public ThreadPoolTaskExecutor drugImportExecutor() {
+        int threads = drugImportConfig.getWriterThreads() + 1;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("drug-import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * {@code @Async} 默认执行器
+     * <p>
+     * 容器中已有 drugApiExecutor，Spring Boot 不再自动创建默认执行器，这里显式声明，
+     * 避免 {@code @Async} 方法落到药品API线程池上。
+     */
+    @Bean(name = "taskExecutor")
+    public TaskExecutor taskExecutor() {
+        if (useVirtualThreads()) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(10000);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    private boolean useVirtualThreads() {
+        if (!virtualThreadsEnabled) {
+            return false;
+        }
+        if (Runtime.version().feature() < 21) {
+            log.warn("已开启虚拟线程模式，但当前JDK版本 {} 不支持，继续使用平台线程", Runtime.version());
+            return false;
+        }
+        return true;
+    }
+}
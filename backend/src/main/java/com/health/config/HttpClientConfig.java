@@ -0,0 +1,65 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站HTTP连接池配置类（药品API、微信接口共用）
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.http-client")
+public class HttpClientConfig {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标主机默认最大连接数
+     */
+    private int defaultMaxPerRoute = 50;
+
+    /**
+     * 按目标主机单独设置的最大连接数，键为 scheme://host[:port]
+     */
+    private Map<String, Integer> routeMaxConnections = new LinkedHashMap<>();
+
+    /**
+     * 建立连接超时，单位毫秒
+     */
+    private long connectTimeoutMs = 5000;
+
+    /**
+     * 等待响应数据超时，单位毫秒
+     */
+    private long responseTimeoutMs = 10000;
+
+    /**
+     * 从连接池获取连接的超时，单位毫秒
+     */
+    private long connectionRequestTimeoutMs = 2000;
+
+    /**
+     * 服务端未声明Keep-Alive时连接的保持时长，服务端声明的时长也不超过此值，单位秒
+     */
+    private long keepAliveSeconds = 30;
+
+    /**
+     * 空闲超过该时长的连接由后台线程关闭，单位秒
+     */
+    private long idleEvictSeconds = 30;
+
+    /**
+     * 连接空闲超过该时长后复用前先校验，单位毫秒
+     */
+    private long validateAfterInactivityMs = 2000;
+}
@@ -0,0 +1,70 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JWT认证配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.jwt")
+public class JwtConfig {
+
+    /**
+     * 是否启用请求认证，关闭后仍签发令牌但不校验
+     */
+    private boolean enabled = true;
+
+    /**
+     * HMAC签名密钥
+     */
+    private String secret;
+
+    /**
+     * 令牌有效期，单位秒
+     */
+    private long expiration = 604800;
+
+    /**
+     * 令牌请求头
+     */
+    private String header = "Authorization";
+
+    /**
+     * 令牌前缀
+     */
+    private String prefix = "Bearer";
+
+    /**
+     * 需要认证的路径（不含 context-path，Ant风格），只应包含用户操作本人数据的接口
+     */
+    private List<String> protectedPaths = new ArrayList<>(List.of("/api/user/info/**", "/api/user/update"));
+
+    /**
+     * 无需认证的路径，优先于 protectedPaths
+     */
+    private List<String> excludePaths = new ArrayList<>(List.of("/api/user/login"));
+
+    /**
+     * 已验签令牌缓存的最大条数
+     */
+    private int verifiedCacheSize = 10000;
+
+    /**
+     * 令牌吊销标记的Redis键前缀，后接用户ID
+     */
+    private String revokedKeyPrefix = "health:jwt:revoked:";
+
+    /**
+     * 吊销查询结果的本地缓存时间，单位毫秒；其他实例的禁用最多延迟这么久生效
+     */
+    private long revocationCacheMs = 5000;
+}
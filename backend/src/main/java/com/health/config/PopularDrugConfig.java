@@ -0,0 +1,37 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热门药品统计配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.popular")
+public class PopularDrugConfig {
+
+    /**
+     * 每个时间窗口最多跟踪的药品数
+     */
+    private int capacity = 1000;
+
+    /**
+     * 持久化检查点间隔，单位毫秒
+     */
+    private long checkpointIntervalMs = 300000;
+
+    /**
+     * 检查点Redis键前缀
+     */
+    private String redisKeyPrefix = "health:drug:popular:";
+
+    /**
+     * 同步到联想前缀树的热门药品数
+     */
+    private int suggestWeightTopN = 200;
+}
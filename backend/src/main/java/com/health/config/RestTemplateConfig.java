@@ -1,25 +1,104 @@
 package com.health.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URISyntaxException;
+import java.util.Map;
+
 /**
  * RestTemplate配置类
- * 
+ * <p>
+ * 药品API与微信接口共用一个 HttpClient5 连接池，连接按目标主机复用（Keep-Alive），
+ * 避免每次调用都重新建立TCP和TLS连接。
+ *
  * @author Health Team
  * @since 2024-01-20
  */
+@Slf4j
 @Configuration
 public class RestTemplateConfig {
-    
+
+    @Autowired
+    private HttpClientConfig httpClientConfig;
+
+    /**
+     * 出站HTTP连接池
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager() {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(httpClientConfig.getMaxTotal());
+        manager.setDefaultMaxPerRoute(httpClientConfig.getDefaultMaxPerRoute());
+        manager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(httpClientConfig.getConnectTimeoutMs()))
+                .setSocketTimeout(Timeout.ofMilliseconds(httpClientConfig.getResponseTimeoutMs()))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(httpClientConfig.getValidateAfterInactivityMs()))
+                .build());
+
+        for (Map.Entry<String, Integer> entry : httpClientConfig.getRouteMaxConnections().entrySet()) {
+            try {
+                manager.setMaxPerRoute(routeOf(entry.getKey()), entry.getValue());
+            } catch (Exception e) {
+                log.warn("忽略无效的连接池路由配置: {}", entry.getKey(), e);
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * 按目标地址构造与路由规划器一致的连接池路由
+     * <p>
+     * 路由规划器会把目标主机的端口补全为协议默认端口（https为443），并按协议标记是否安全连接；
+     * 这里必须得到相同的路由，按路由设置的连接上限才会生效。
+     */
+    public static HttpRoute routeOf(String uri) throws URISyntaxException {
+        HttpHost host = HttpHost.create(uri);
+        boolean secure = URIScheme.HTTPS.same(host.getSchemeName());
+        int port = host.getPort() > 0 ? host.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(host.getSchemeName(), host.getHostName(), port), null, secure);
+    }
+
+    /**
+     * 共享的HttpClient，空闲与过期连接由后台线程定期清理
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        TimeValue maxKeepAlive = TimeValue.ofSeconds(httpClientConfig.getKeepAliveSeconds());
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(httpClientConfig.getConnectionRequestTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(httpClientConfig.getResponseTimeoutMs()))
+                        .setConnectionKeepAlive(maxKeepAlive)
+                        .build())
+                // 以服务端Keep-Alive头为准，但不超过配置的上限
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration == null || duration.compareTo(maxKeepAlive) > 0 ? maxKeepAlive : duration;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(httpClientConfig.getIdleEvictSeconds()))
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000); // 连接超时10秒
-        factory.setReadTimeout(30000);    // 读取超时30秒
-        
-        return new RestTemplate(factory);
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
     }
-}
\ No newline at end of file
+}
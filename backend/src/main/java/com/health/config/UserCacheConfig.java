@@ -0,0 +1,32 @@
+package com.health.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户本地缓存配置类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.cache.user")
+public class UserCacheConfig {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最大缓存用户数，openid、手机号索引各自的上限相同
+     */
+    private int maxSize = 10000;
+
+    /**
+     * 过期时间，单位秒；本实例的写操作会主动失效，过期时间只限制多实例间的不一致窗口
+     */
+    private long ttlSeconds = 300;
+}
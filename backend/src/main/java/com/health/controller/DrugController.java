@@ -1,19 +1,41 @@
 package com.health.controller;
 
+import com.health.common.CursorPage;
+import com.health.common.DrugProjection;
 import com.health.common.Result;
+import com.health.common.UpsertResult;
+import com.health.config.DrugApiConfig;
 import com.health.entity.Drug;
+import com.health.entity.DrugImportJob;
+import com.health.service.DrugEnrichmentService;
+import com.health.service.DrugExportService;
+import com.health.service.DrugImportService;
+import com.health.service.DrugKeyFilter;
+import com.health.service.DrugResponseCacheService;
 import com.health.service.DrugService;
+import com.health.service.EntityTagService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 药品控制器
@@ -30,25 +52,85 @@ public class DrugController {
     @Autowired
     private DrugService drugService;
     
+    @Autowired
+    private DrugApiConfig drugApiConfig;
+    
+    @Autowired
+    private EntityTagService entityTagService;
+    
+    @Autowired
+    private DrugResponseCacheService drugResponseCacheService;
+    
+    @Autowired
+    private DrugEnrichmentService drugEnrichmentService;
+
+    @Autowired
+    private DrugImportService drugImportService;
+
+    @Autowired
+    private DrugExportService drugExportService;
+
+    @Autowired
+    private DrugKeyFilter drugKeyFilter;
+    
     /**
-     * 根据条形码查询药品
+     * 根据条形码查询药品，支持 If-None-Match 条件请求
      */
     @GetMapping("/barcode/{barcode}")
-    public Result<Drug> getDrugByBarcode(@PathVariable @NotBlank String barcode) {
+    public Result<Drug> getDrugByBarcode(@PathVariable @NotBlank String barcode, WebRequest webRequest,
+                                         HttpServletRequest request, HttpServletResponse response) {
         try {
             Drug drug = drugService.getDrugByBarcode(barcode);
             if (drug == null) {
                 return Result.error("未找到该药品信息");
             }
-            return Result.success(drug);
+            // 尚未落库的API来源数据没有ID和版本，不下发ETag也不缓存响应
+            if (drug.getId() == null) {
+                drugResponseCacheService.write(null, null, drug, request, response);
+                return null;
+            }
+            String etag = EntityTagService.compute(drug.getId(), drug.getUpdatedAt());
+            if (entityTagService.checkNotModified(etag, webRequest)) {
+                return null;
+            }
+            // 成功响应直接写出缓存的序列化字节
+            drugResponseCacheService.write(EntityTagService.barcodeKey(barcode), etag, drug, request, response);
+            return null;
         } catch (Exception e) {
             log.error("根据条形码查询药品失败: barcode={}", barcode, e);
             return Result.error("查询药品失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 批量根据条形码查询药品
+     */
+    @PostMapping("/barcode/batch")
+    public Result<Map<String, Object>> getDrugsByBarcodes(@RequestBody @Valid BatchBarcodeRequest request) {
+        if (request.getBarcodes().size() > drugApiConfig.getBatchMaxSize()) {
+            return Result.paramError("单次最多查询" + drugApiConfig.getBatchMaxSize() + "个条形码");
+        }
+        try {
+            List<Map<String, Object>> items = drugService.getDrugsByBarcodes(request.getBarcodes());
+            long foundCount = items.stream().filter(item -> "FOUND".equals(item.get("status"))).count();
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", items);
+            result.put("total", items.size());
+            result.put("found", foundCount);
+            
+            return Result.success(result);
+        } catch (Exception e) {
+            log.error("批量查询药品失败: size={}", request.getBarcodes().size(), e);
+            return Result.error("批量查询药品失败");
+        }
+    }
+    
     /**
      * 搜索药品
+     * <p>
+     * fields 为逗号分隔的返回字段（Drug属性名），不传时只返回列表页所需的精简字段，传 all 返回全部字段；
+     * 完整说明书请使用详情接口。
      */
     @GetMapping("/search")
     public Result<Map<String, Object>> searchDrugs(
@@ -56,9 +138,31 @@ public class DrugController {
             @RequestParam(required = false) String manufacturer,
             @RequestParam(required = false) Integer status,
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "none") String count,
+            @RequestParam(required = false) String fields) {
+        DrugProjection projection;
+        try {
+            projection = DrugProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Result.paramError(e.getMessage());
+        }
+        // 传入cursor参数（第一页传空串）时使用游标分页，否则保持原有的页码分页
+        if (cursor != null) {
+            try {
+                CursorPage<Drug> cursorPage = drugService.searchDrugsByCursor(keyword, manufacturer, status,
+                        cursor, size, CursorPage.CountMode.of(count), projection);
+                return Result.success(toCursorResult(cursorPage, size));
+            } catch (IllegalArgumentException e) {
+                return Result.paramError(e.getMessage());
+            } catch (Exception e) {
+                log.error("搜索药品失败: keyword={}", keyword, e);
+                return Result.error("搜索药品失败");
+            }
+        }
         try {
-            List<Drug> drugs = drugService.searchDrugs(keyword, manufacturer, status, page, size);
+            List<Drug> drugs = drugService.searchDrugs(keyword, manufacturer, status, page, size, projection);
             Long total = drugService.getDrugCount(keyword, manufacturer, status);
             
             Map<String, Object> result = new HashMap<>();
@@ -75,16 +179,22 @@ public class DrugController {
     }
     
     /**
-     * 根据ID查询药品详情
+     * 根据ID查询药品详情，支持 If-None-Match 条件请求
      */
     @GetMapping("/detail/{id}")
-    public Result<Drug> getDrugDetail(@PathVariable @NotNull Long id) {
+    public Result<Drug> getDrugDetail(@PathVariable @NotNull Long id, WebRequest webRequest,
+                                      HttpServletRequest request, HttpServletResponse response) {
         try {
             Drug drug = drugService.getDrugById(id);
             if (drug == null) {
                 return Result.error("药品不存在");
             }
-            return Result.success(drug);
+            String etag = EntityTagService.compute(drug.getId(), drug.getUpdatedAt());
+            if (entityTagService.checkNotModified(etag, webRequest)) {
+                return null;
+            }
+            drugResponseCacheService.write(EntityTagService.drugKey(id), etag, drug, request, response);
+            return null;
         } catch (Exception e) {
             log.error("获取药品详情失败: id={}", id, e);
             return Result.error("获取药品详情失败");
@@ -92,15 +202,18 @@ public class DrugController {
     }
     
     /**
-     * 根据药品名称模糊查询
+     * 根据药品名称模糊查询，fields 含义同搜索接口
      */
     @GetMapping("/suggest")
     public Result<List<Drug>> getDrugSuggestions(
             @RequestParam @NotBlank String name,
-            @RequestParam(defaultValue = "10") Integer limit) {
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(required = false) String fields) {
         try {
-            List<Drug> drugs = drugService.getDrugsByNameLike(name, limit);
+            List<Drug> drugs = drugService.getDrugsByNameLike(name, limit, DrugProjection.parse(fields));
             return Result.success(drugs);
+        } catch (IllegalArgumentException e) {
+            return Result.paramError(e.getMessage());
         } catch (Exception e) {
             log.error("获取药品建议失败: name={}", name, e);
             return Result.error("获取药品建议失败");
@@ -108,13 +221,18 @@ public class DrugController {
     }
     
     /**
-     * 获取热门药品
+     * 获取热门药品，fields 含义同搜索接口
      */
     @GetMapping("/popular")
-    public Result<List<Drug>> getPopularDrugs(@RequestParam(defaultValue = "10") Integer limit) {
+    public Result<List<Drug>> getPopularDrugs(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(required = false) String fields) {
         try {
-            List<Drug> drugs = drugService.getPopularDrugs(limit);
+            List<Drug> drugs = drugService.getPopularDrugs(window, limit, DrugProjection.parse(fields));
             return Result.success(drugs);
+        } catch (IllegalArgumentException e) {
+            return Result.paramError(e.getMessage());
         } catch (Exception e) {
             log.error("获取热门药品失败", e);
             return Result.error("获取热门药品失败");
@@ -135,6 +253,34 @@ public class DrugController {
         }
     }
     
+    /**
+     * 插入或合并药品（管理端）：条形码或批准文号已存在时合并到已有记录，返回是否新建
+     */
+    @PostMapping("/upsert")
+    public Result<UpsertResult<Drug>> upsertDrug(@RequestBody @Valid Drug drug) {
+        try {
+            return Result.success(drugService.upsertDrug(drug));
+        } catch (IllegalArgumentException e) {
+            return Result.paramError(e.getMessage());
+        } catch (Exception e) {
+            log.error("插入或合并药品失败", e);
+            return Result.error("插入或合并药品失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取药品键布隆过滤器统计（管理端）
+     */
+    @GetMapping("/key-filter/stats")
+    public Result<Map<String, Object>> getKeyFilterStats() {
+        try {
+            return Result.success(drugKeyFilter.getStats());
+        } catch (Exception e) {
+            log.error("获取布隆过滤器统计失败", e);
+            return Result.error("获取布隆过滤器统计失败");
+        }
+    }
+    
     /**
      * 更新药品信息（管理端）
      */
@@ -185,6 +331,128 @@ public class DrugController {
         }
     }
     
+    /**
+     * 批量导入药品目录（管理端）
+     * <p>
+     * 请求体为文件原始内容（Content-Type 任意，如 text/csv），不走 multipart，避免上传大小限制和整文件缓冲。
+     * 接收完成即返回任务，导入在后台执行，通过进度接口查询。
+     */
+    @PostMapping("/import")
+    public Result<DrugImportJob> importDrugs(@RequestParam(defaultValue = "csv") String format,
+                                             @RequestParam(required = false) String fileName,
+                                             HttpServletRequest request) {
+        try {
+            return Result.success(drugImportService.start(request.getInputStream(), format, fileName));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.paramError(e.getMessage());
+        } catch (Exception e) {
+            log.error("创建药品导入任务失败", e);
+            return Result.error("创建药品导入任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询药品导入任务进度（管理端）
+     */
+    @GetMapping("/import/{id}")
+    public Result<Map<String, Object>> getImportProgress(@PathVariable @NotNull Long id) {
+        try {
+            Map<String, Object> progress = drugImportService.getProgress(id);
+            if (progress == null) {
+                return Result.error("导入任务不存在");
+            }
+            return Result.success(progress);
+        } catch (Exception e) {
+            log.error("查询药品导入进度失败: id={}", id, e);
+            return Result.error("查询药品导入进度失败");
+        }
+    }
+    
+    /**
+     * 从断点续导失败或中断的导入任务（管理端）
+     */
+    @PostMapping("/import/{id}/resume")
+    public Result<DrugImportJob> resumeImport(@PathVariable @NotNull Long id) {
+        try {
+            return Result.success(drugImportService.resume(id));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.paramError(e.getMessage());
+        } catch (Exception e) {
+            log.error("续导药品导入任务失败: id={}", id, e);
+            return Result.error("续导药品导入任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 流式导出药品目录（管理端）
+     * <p>
+     * 边查边写，不在内存中汇总结果。fields 与列表接口相同，未传时导出全部字段；gzip=true 时输出 .gz 压缩文件。
+     * 导出成功时直接写响应流并返回null；开始写出后出错只能中断连接，客户端会收到不完整的文件。
+     */
+    @GetMapping("/export")
+    public Result<Void> exportDrugs(@RequestParam(defaultValue = "csv") String format,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestParam(required = false) Integer status,
+                                    @RequestParam(defaultValue = "false") boolean gzip,
+                                    HttpServletResponse response) {
+        DrugExportService.Format exportFormat;
+        DrugProjection projection;
+        try {
+            exportFormat = DrugExportService.Format.of(format);
+            projection = fields == null || fields.trim().isEmpty() ? DrugProjection.FULL : DrugProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Result.paramError(e.getMessage());
+        }
+        if (!drugExportService.tryAcquire()) {
+            return Result.error("导出任务过多，请稍后再试");
+        }
+        try {
+            String fileName = "drugs-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE)
+                    + exportFormat.getExtension() + (gzip ? ".gz" : "");
+            response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType() + ";charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(fileName).build().toString());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+                drugExportService.export(gzipOut, exportFormat, projection, status);
+                gzipOut.finish();
+            } else {
+                drugExportService.export(out, exportFormat, projection, status);
+            }
+            response.flushBuffer();
+            return null;
+        } catch (IOException e) {
+            // 多为客户端中断下载
+            log.warn("药品目录导出中断: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            log.error("药品目录导出失败", e);
+            if (response.isCommitted()) {
+                return null;
+            }
+            response.reset();
+            return Result.error("药品目录导出失败: " + e.getMessage());
+        } finally {
+            drugExportService.release();
+        }
+    }
+    
+    /**
+     * 获取药品目录导出统计（管理端）
+     */
+    @GetMapping("/export/stats")
+    public Result<Map<String, Object>> getExportStats() {
+        try {
+            return Result.success(drugExportService.getStats());
+        } catch (Exception e) {
+            log.error("获取导出统计失败", e);
+            return Result.error("获取导出统计失败");
+        }
+    }
+    
     /**
      * 获取药品统计信息（管理端）
      */
@@ -205,6 +473,101 @@ public class DrugController {
         }
     }
     
+    /**
+     * 获取条形码缓存命中统计（管理端）
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> getBarcodeCacheStats() {
+        try {
+            return Result.success(drugService.getBarcodeCacheStats());
+        } catch (Exception e) {
+            log.error("获取条形码缓存统计失败", e);
+            return Result.error("获取条形码缓存统计失败");
+        }
+    }
+    
+    /**
+     * 获取API搜索结果缓存统计（管理端）
+     */
+    @GetMapping("/search-cache/stats")
+    public Result<Map<String, Object>> getSearchCacheStats() {
+        try {
+            return Result.success(drugService.getSearchCacheStats());
+        } catch (Exception e) {
+            log.error("获取搜索缓存统计失败", e);
+            return Result.error("获取搜索缓存统计失败");
+        }
+    }
+    
+    /**
+     * 获取药品信息后台补全统计（管理端）
+     */
+    @GetMapping("/enrichment/stats")
+    public Result<Map<String, Object>> getEnrichmentStats() {
+        try {
+            return Result.success(drugEnrichmentService.getStats());
+        } catch (Exception e) {
+            log.error("获取药品补全统计失败", e);
+            return Result.error("获取药品补全统计失败");
+        }
+    }
+    
+    /**
+     * 获取药品详情响应字节缓存统计（管理端）
+     */
+    @GetMapping("/response-cache/stats")
+    public Result<Map<String, Object>> getResponseCacheStats() {
+        try {
+            return Result.success(drugResponseCacheService.getStats());
+        } catch (Exception e) {
+            log.error("获取响应缓存统计失败", e);
+            return Result.error("获取响应缓存统计失败");
+        }
+    }
+    
+    /**
+     * 获取药品异步落库队列统计（管理端）
+     */
+    @GetMapping("/write-behind/stats")
+    public Result<Map<String, Object>> getWriteBehindStats() {
+        try {
+            return Result.success(drugService.getWriteBehindStats());
+        } catch (Exception e) {
+            log.error("获取异步落库队列统计失败", e);
+            return Result.error("获取异步落库队列统计失败");
+        }
+    }
+    
+    /**
+     * 组装游标分页响应
+     */
+    private Map<String, Object> toCursorResult(CursorPage<Drug> cursorPage, Integer size) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", cursorPage.getList());
+        result.put("nextCursor", cursorPage.getNextCursor());
+        result.put("hasMore", cursorPage.getHasMore());
+        result.put("total", cursorPage.getTotal());
+        result.put("totalEstimated", cursorPage.getTotalEstimated());
+        result.put("size", size);
+        return result;
+    }
+    
+    /**
+     * 批量条形码查询请求对象
+     */
+    public static class BatchBarcodeRequest {
+        @NotEmpty(message = "条形码列表不能为空")
+        private List<String> barcodes;
+        
+        public List<String> getBarcodes() {
+            return barcodes;
+        }
+        
+        public void setBarcodes(List<String> barcodes) {
+            this.barcodes = barcodes;
+        }
+    }
+    
     /**
      * 更新状态请求对象
      */
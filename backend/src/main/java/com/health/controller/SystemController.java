@@ -0,0 +1,113 @@
+package com.health.controller;
+
+import com.health.common.Result;
+import com.health.service.ApiCallLogService;
+import com.health.service.DrugApiGuard;
+import com.health.service.EntityTagService;
+import com.health.service.HttpClientPoolService;
+import com.health.service.VirtualThreadPinningMonitor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 系统运行状态控制器（管理端）
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/system")
+public class SystemController {
+
+    @Autowired
+    private HttpClientPoolService httpClientPoolService;
+
+    @Autowired
+    private DrugApiGuard drugApiGuard;
+
+    @Autowired
+    private ApiCallLogService apiCallLogService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    /**
+     * 仅在虚拟线程模式下存在
+     */
+    @Autowired(required = false)
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    /**
+     * 获取出站HTTP连接池统计
+     */
+    @GetMapping("/http-pool/stats")
+    public Result<Map<String, Object>> getHttpPoolStats() {
+        try {
+            return Result.success(httpClientPoolService.getStats());
+        } catch (Exception e) {
+            log.error("获取HTTP连接池统计失败", e);
+            return Result.error("获取HTTP连接池统计失败");
+        }
+    }
+
+    /**
+     * 获取药品API熔断与并发限制统计
+     */
+    @GetMapping("/drug-api/stats")
+    public Result<Map<String, Object>> getDrugApiStats() {
+        try {
+            return Result.success(drugApiGuard.getStats());
+        } catch (Exception e) {
+            log.error("获取药品API保护统计失败", e);
+            return Result.error("获取药品API保护统计失败");
+        }
+    }
+
+    /**
+     * 获取API调用日志写入统计
+     */
+    @GetMapping("/api-call-log/stats")
+    public Result<Map<String, Object>> getApiCallLogStats() {
+        try {
+            return Result.success(apiCallLogService.getStats());
+        } catch (Exception e) {
+            log.error("获取API调用日志统计失败", e);
+            return Result.error("获取API调用日志统计失败");
+        }
+    }
+
+    /**
+     * 获取条件请求（ETag）命中统计
+     */
+    @GetMapping("/etag/stats")
+    public Result<Map<String, Object>> getEntityTagStats() {
+        try {
+            return Result.success(entityTagService.getStats());
+        } catch (Exception e) {
+            log.error("获取ETag统计失败", e);
+            return Result.error("获取ETag统计失败");
+        }
+    }
+
+    /**
+     * 获取虚拟线程钉住统计
+     */
+    @GetMapping("/virtual-threads/pinning")
+    public Result<Map<String, Object>> getPinningStats() {
+        if (pinningMonitor == null) {
+            return Result.error("未开启虚拟线程模式");
+        }
+        try {
+            return Result.success(pinningMonitor.getStats());
+        } catch (Exception e) {
+            log.error("获取虚拟线程钉住统计失败", e);
+            return Result.error("获取虚拟线程钉住统计失败");
+        }
+    }
+}
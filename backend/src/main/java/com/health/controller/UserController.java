@@ -1,13 +1,21 @@
 package com.health.controller;
 
+import com.health.common.CursorPage;
 import com.health.common.Result;
+import com.health.common.ResultCode;
+import com.health.config.JwtConfig;
 import com.health.entity.User;
+import com.health.filter.JwtAuthenticationFilter;
+import com.health.service.EntityTagService;
+import com.health.service.JwtService;
+import com.health.service.UserCacheService;
 import com.health.service.UserService;
 import com.health.service.WechatService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -34,14 +42,33 @@ public class UserController {
     @Autowired
     private WechatService wechatService;
     
+    @Autowired
+    private UserCacheService userCacheService;
+    
+    @Autowired
+    private JwtService jwtService;
+    
+    @Autowired
+    private JwtConfig jwtConfig;
+    
+    @Autowired
+    private EntityTagService entityTagService;
+    
     /**
      * 微信小程序登录
      */
     @PostMapping("/login")
-    public Result<User> login(@RequestBody @Valid LoginRequest request) {
+    public Result<LoginResponse> login(@RequestBody @Valid LoginRequest request) {
         try {
             User user = wechatService.login(request.getCode());
-            return Result.success(user);
+            if (User.Status.DISABLED.getCode().equals(user.getStatus())) {
+                return Result.error(ResultCode.USER_DISABLED);
+            }
+            LoginResponse response = new LoginResponse();
+            response.setToken(jwtService.issue(user));
+            response.setExpiresIn(jwtConfig.getExpiration());
+            response.setUser(user);
+            return Result.success(response);
         } catch (Exception e) {
             log.error("用户登录失败", e);
             return Result.error("登录失败: " + e.getMessage());
@@ -49,15 +76,24 @@ public class UserController {
     }
     
     /**
-     * 获取用户信息
+     * 获取用户信息，支持 If-None-Match 条件请求
      */
     @GetMapping("/info/{id}")
-    public Result<User> getUserInfo(@PathVariable @NotNull Long id) {
+    public Result<User> getUserInfo(@PathVariable @NotNull Long id, WebRequest webRequest,
+                                    @RequestAttribute(name = JwtAuthenticationFilter.USER_ID_ATTRIBUTE,
+                                            required = false) Long currentUserId) {
+        if (isForbidden(currentUserId, id)) {
+            return Result.error(ResultCode.FORBIDDEN);
+        }
         try {
             User user = userService.getUserById(id);
             if (user == null) {
                 return Result.error("用户不存在");
             }
+            String etag = EntityTagService.compute(user.getId(), user.getUpdatedAt());
+            if (entityTagService.checkNotModified(etag, webRequest)) {
+                return null;
+            }
             return Result.success(user);
         } catch (Exception e) {
             log.error("获取用户信息失败", e);
@@ -69,7 +105,12 @@ public class UserController {
      * 更新用户信息
      */
     @PutMapping("/update")
-    public Result<User> updateUser(@RequestBody @Valid User user) {
+    public Result<User> updateUser(@RequestBody @Valid User user,
+                                   @RequestAttribute(name = JwtAuthenticationFilter.USER_ID_ATTRIBUTE,
+                                           required = false) Long currentUserId) {
+        if (isForbidden(currentUserId, user.getId())) {
+            return Result.error(ResultCode.FORBIDDEN);
+        }
         try {
             User updatedUser = userService.updateUser(user);
             return Result.success(updatedUser);
@@ -79,6 +120,13 @@ public class UserController {
         }
     }
     
+    /**
+     * 令牌用户是否无权操作指定用户的数据：令牌不带角色，只允许操作本人；未启用认证时不校验
+     */
+    private boolean isForbidden(Long currentUserId, Long userId) {
+        return jwtConfig.isEnabled() && (currentUserId == null || !currentUserId.equals(userId));
+    }
+    
     /**
      * 获取用户列表（管理端）
      */
@@ -87,7 +135,31 @@ public class UserController {
             @RequestParam(required = false) String nickname,
             @RequestParam(required = false) Integer status,
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "none") String count) {
+        // 传入cursor参数（第一页传空串）时使用游标分页，否则保持原有的页码分页
+        if (cursor != null) {
+            try {
+                CursorPage<User> cursorPage = userService.getUserListByCursor(nickname, status, cursor, size,
+                        CursorPage.CountMode.of(count));
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("list", cursorPage.getList());
+                result.put("nextCursor", cursorPage.getNextCursor());
+                result.put("hasMore", cursorPage.getHasMore());
+                result.put("total", cursorPage.getTotal());
+                result.put("totalEstimated", cursorPage.getTotalEstimated());
+                result.put("size", size);
+                
+                return Result.success(result);
+            } catch (IllegalArgumentException e) {
+                return Result.paramError(e.getMessage());
+            } catch (Exception e) {
+                log.error("获取用户列表失败", e);
+                return Result.error("获取用户列表失败");
+            }
+        }
         try {
             List<User> users = userService.getUserList(nickname, status, page, size);
             Long total = userService.getUserCount(nickname, status);
@@ -147,7 +219,7 @@ public class UserController {
     @GetMapping("/statistics")
     public Result<Map<String, Object>> getUserStatistics() {
         try {
-            Long totalUsers = userService.getUserCount(null, null);
+            Long totalUsers = userService.getTotalUserCount();
             Long todayNewUsers = userService.getTodayNewUserCount();
             Long activeUsers = userService.getActiveUserCount(7);
             
@@ -163,6 +235,32 @@ public class UserController {
         }
     }
     
+    /**
+     * 获取用户缓存命中统计（管理端）
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> getUserCacheStats() {
+        try {
+            return Result.success(userCacheService.getStats());
+        } catch (Exception e) {
+            log.error("获取用户缓存统计失败", e);
+            return Result.error("获取用户缓存统计失败");
+        }
+    }
+    
+    /**
+     * 获取令牌校验统计（管理端）
+     */
+    @GetMapping("/token/stats")
+    public Result<Map<String, Object>> getTokenStats() {
+        try {
+            return Result.success(jwtService.getStats());
+        } catch (Exception e) {
+            log.error("获取令牌校验统计失败", e);
+            return Result.error("获取令牌校验统计失败");
+        }
+    }
+    
     /**
      * 登录请求对象
      */
@@ -179,6 +277,44 @@ public class UserController {
         }
     }
     
+    /**
+     * 登录响应对象
+     */
+    public static class LoginResponse {
+        private String token;
+        
+        /**
+         * 令牌有效期，单位秒
+         */
+        private Long expiresIn;
+        
+        private User user;
+        
+        public String getToken() {
+            return token;
+        }
+        
+        public void setToken(String token) {
+            this.token = token;
+        }
+        
+        public Long getExpiresIn() {
+            return expiresIn;
+        }
+        
+        public void setExpiresIn(Long expiresIn) {
+            this.expiresIn = expiresIn;
+        }
+        
+        public User getUser() {
+            return user;
+        }
+        
+        public void setUser(User user) {
+            this.user = user;
+        }
+    }
+    
     /**
      * 更新状态请求对象
      */
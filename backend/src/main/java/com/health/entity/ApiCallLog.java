@@ -0,0 +1,88 @@
+package com.health.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * API调用日志实体类
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class ApiCallLog {
+
+    /**
+     * 日志ID
+     */
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * API类型
+     */
+    private String apiType;
+
+    /**
+     * API地址
+     */
+    private String apiUrl;
+
+    /**
+     * 请求参数
+     */
+    private String requestParams;
+
+    /**
+     * 响应状态码，未收到响应时为空
+     */
+    private Integer responseCode;
+
+    /**
+     * 响应时间（毫秒）
+     */
+    private Integer responseTimeMs;
+
+    /**
+     * 是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 错误信息
+     */
+    private String errorMessage;
+
+    /**
+     * 调用时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    /**
+     * API类型枚举
+     */
+    public enum ApiType {
+        DRUG_SEARCH("drug_search"),
+        DRUG_DETAIL("drug_detail"),
+        BARCODE_QUERY("barcode_query");
+
+        private final String code;
+
+        ApiType(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+    }
+}
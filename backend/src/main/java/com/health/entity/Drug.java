@@ -107,6 +107,21 @@ public class Drug {
      */
     private BigDecimal price;
     
+    /**
+     * 药品业务ID（来自API），用于查询API详情
+     */
+    private String drugId;
+    
+    /**
+     * 说明书信息是否完整
+     */
+    private Boolean complete;
+    
+    /**
+     * 数据来源：yaozhi_api, manual, barcode, import
+     */
+    private String dataSource;
+    
     /**
      * 状态：0-下架，1-正常
      */
@@ -156,4 +171,30 @@ public class Drug {
             return NORMAL;
         }
     }
+    
+    /**
+     * 数据来源枚举
+     */
+    public enum DataSource {
+        YAOZHI_API("yaozhi_api", "药品API搜索/详情"),
+        MANUAL("manual", "手动录入"),
+        BARCODE("barcode", "条形码API"),
+        IMPORT("import", "批量导入");
+        
+        private final String code;
+        private final String desc;
+        
+        DataSource(String code, String desc) {
+            this.code = code;
+            this.desc = desc;
+        }
+        
+        public String getCode() {
+            return code;
+        }
+        
+        public String getDesc() {
+            return desc;
+        }
+    }
 }
\ No newline at end of file
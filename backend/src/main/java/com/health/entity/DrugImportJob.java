@@ -0,0 +1,125 @@
+package com.health.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 药品批量导入任务实体类
+ * 
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DrugImportJob {
+    
+    /**
+     * 任务ID
+     */
+    private Long id;
+    
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+    
+    /**
+     * 服务器上的暂存文件路径
+     */
+    @JsonIgnore
+    private String filePath;
+    
+    /**
+     * 文件格式：csv, jsonl
+     */
+    private String format;
+    
+    /**
+     * 状态
+     */
+    private String status;
+    
+    /**
+     * 文件大小（字节）
+     */
+    private Long totalBytes;
+    
+    /**
+     * 已全部落库的记录数（断点），续导从此处之后开始
+     */
+    private Long checkpointRecord;
+    
+    /**
+     * 已读取记录数
+     */
+    private Long readRecords;
+    
+    /**
+     * 已写入记录数（插入或更新）
+     */
+    private Long upsertedRecords;
+    
+    /**
+     * 校验未通过记录数
+     */
+    private Long invalidRecords;
+    
+    /**
+     * 批次内重复记录数
+     */
+    private Long duplicateRecords;
+    
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+    
+    /**
+     * 最近一次开始时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startedAt;
+    
+    /**
+     * 结束时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime finishedAt;
+    
+    /**
+     * 创建时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updatedAt;
+    
+    /**
+     * 任务状态枚举
+     */
+    public enum Status {
+        PENDING("等待执行"),
+        RUNNING("执行中"),
+        COMPLETED("已完成"),
+        FAILED("失败，可续导"),
+        INTERRUPTED("服务重启中断，可续导");
+        
+        private final String desc;
+        
+        Status(String desc) {
+            this.desc = desc;
+        }
+        
+        public String getDesc() {
+            return desc;
+        }
+    }
+}
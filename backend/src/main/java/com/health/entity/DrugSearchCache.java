@@ -0,0 +1,112 @@
+package com.health.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 药品搜索缓存实体类
+ * 
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DrugSearchCache {
+    
+    /**
+     * 缓存ID
+     */
+    private Long id;
+    
+    /**
+     * 搜索关键词（归一化后）
+     */
+    private String searchKeyword;
+    
+    /**
+     * 搜索类型：1-药品名称，2-药企名称，3-药准字号
+     */
+    private Integer searchType;
+    
+    /**
+     * 页码
+     */
+    private Integer pageNo;
+    
+    /**
+     * API来源
+     */
+    private String apiSource;
+    
+    /**
+     * 缓存的搜索结果数据（JSON）
+     */
+    private String cacheData;
+    
+    /**
+     * 结果数量
+     */
+    private Integer resultCount;
+    
+    /**
+     * 命中次数
+     */
+    private Integer hitCount;
+    
+    /**
+     * 最后命中时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastHitTime;
+    
+    /**
+     * 过期时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expireTime;
+    
+    /**
+     * 状态：0-失效，1-有效
+     */
+    private Integer status;
+    
+    /**
+     * 创建时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updatedAt;
+    
+    /**
+     * 搜索类型枚举
+     */
+    public enum SearchType {
+        DRUG_NAME(1, "药品名称"),
+        MANUFACTURER(2, "药企名称"),
+        APPROVAL_NUMBER(3, "药准字号");
+        
+        private final Integer code;
+        private final String desc;
+        
+        SearchType(Integer code, String desc) {
+            this.code = code;
+            this.desc = desc;
+        }
+        
+        public Integer getCode() {
+            return code;
+        }
+        
+        public String getDesc() {
+            return desc;
+        }
+    }
+}
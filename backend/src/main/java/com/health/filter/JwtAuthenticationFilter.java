@@ -0,0 +1,107 @@
+package com.health.filter;
+
+import com.alibaba.fastjson2.JSON;
+import com.health.common.Result;
+import com.health.common.ResultCode;
+import com.health.config.JwtConfig;
+import com.health.service.JwtService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JWT认证过滤器
+ * <p>
+ * 对配置的受保护路径校验请求头中的令牌，校验通过后把用户ID放入请求属性 {@link #USER_ID_ATTRIBUTE}，
+ * 由控制器比对请求操作的用户ID；校验只依赖签名和吊销标记，不查询数据库。
+ * 令牌只由小程序登录签发、不区分角色，只能保护用户操作本人数据的接口，不能配置到管理端接口上。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Component
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    /**
+     * 当前请求认证用户ID的请求属性名
+     */
+    public static final String USER_ID_ATTRIBUTE = "health.userId";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private JwtConfig jwtConfig;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!jwtConfig.isEnabled() || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        for (String pattern : jwtConfig.getExcludePaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        for (String pattern : jwtConfig.getProtectedPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = resolveToken(request.getHeader(jwtConfig.getHeader()));
+        if (token == null) {
+            reject(response, ResultCode.UNAUTHORIZED);
+            return;
+        }
+        JwtService.Verification verification = jwtService.verify(token);
+        if (!verification.isValid()) {
+            reject(response, verification.getFailure());
+            return;
+        }
+        request.setAttribute(USER_ID_ATTRIBUTE, verification.getUserId());
+        filterChain.doFilter(request, response);
+    }
+
+    private String resolveToken(String header) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        String prefix = jwtConfig.getPrefix();
+        if (prefix != null && !prefix.isEmpty()) {
+            // 前缀后必须恰好一个空格，拒绝 BearerXYZ 这类粘连写法
+            int length = prefix.length();
+            if (value.length() <= length + 1 || !value.regionMatches(true, 0, prefix, 0, length)
+                    || value.charAt(length) != ' ' || value.charAt(length + 1) == ' ') {
+                return null;
+            }
+            value = value.substring(length + 1);
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    private void reject(HttpServletResponse response, ResultCode resultCode) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(JSON.toJSONString(Result.error(resultCode)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.health.filter;
+
+import com.health.config.DrugApiResilienceConfig;
+import com.health.util.RequestDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求截止时间过滤器
+ * <p>
+ * 请求进入时按默认预算（或客户端通过请求头声明的更短预算）设置截止时间，
+ * 供出站调用计算剩余可用时间。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private DrugApiResilienceConfig resilienceConfig;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long budgetMs = resilienceConfig.getRequestTimeoutMs();
+        String header = request.getHeader(resilienceConfig.getTimeoutHeader());
+        if (header != null) {
+            try {
+                long requested = Long.parseLong(header.trim());
+                if (requested > 0) {
+                    budgetMs = Math.min(budgetMs, requested);
+                }
+            } catch (NumberFormatException e) {
+                // 忽略无效的请求头，使用默认预算
+            }
+        }
+
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
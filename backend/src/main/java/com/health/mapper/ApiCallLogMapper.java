@@ -0,0 +1,22 @@
+package com.health.mapper;
+
+import com.health.entity.ApiCallLog;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * API调用日志数据访问层
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Mapper
+public interface ApiCallLogMapper {
+
+    /**
+     * 批量插入调用日志（单条多行INSERT）
+     */
+    int batchInsert(@Param("logs") List<ApiCallLog> logs);
+}
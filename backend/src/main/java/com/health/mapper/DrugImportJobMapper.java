@@ -0,0 +1,35 @@
+package com.health.mapper;
+
+import com.health.entity.DrugImportJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 药品批量导入任务数据访问层
+ * 
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Mapper
+public interface DrugImportJobMapper {
+    
+    /**
+     * 根据ID查询任务
+     */
+    DrugImportJob selectById(@Param("id") Long id);
+    
+    /**
+     * 创建任务
+     */
+    int insert(DrugImportJob job);
+    
+    /**
+     * 更新任务进度与状态
+     */
+    int updateProgress(DrugImportJob job);
+    
+    /**
+     * 把指定状态的任务改为新状态（服务启动时标记中断的任务）
+     */
+    int updateStatusByStatus(@Param("fromStatus") String fromStatus, @Param("toStatus") String toStatus);
+}
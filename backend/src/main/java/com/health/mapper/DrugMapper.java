@@ -3,7 +3,11 @@ package com.health.mapper;
 import com.health.entity.Drug;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,6 +29,11 @@ public interface DrugMapper {
      */
     Drug selectByBarcode(@Param("barcode") String barcode);
     
+    /**
+     * 根据条形码批量查询药品
+     */
+    List<Drug> selectByBarcodes(@Param("barcodes") Collection<String> barcodes);
+    
     /**
      * 根据批准文号查询药品
      */
@@ -47,12 +56,33 @@ public interface DrugMapper {
     
     /**
      * 搜索药品
+     *
+     * @param columns 查询的列，为null时查询全部列
      */
     List<Drug> searchDrugs(@Param("keyword") String keyword,
                           @Param("manufacturer") String manufacturer,
                           @Param("status") Integer status,
                           @Param("offset") Integer offset,
-                          @Param("limit") Integer limit);
+                          @Param("limit") Integer limit,
+                          @Param("columns") List<String> columns);
+    
+    /**
+     * 游标方式搜索药品，按 (created_at, id) 倒序，从游标之后开始读取
+     *
+     * @param columns 查询的列，为null时查询全部列
+     */
+    List<Drug> searchDrugsAfter(@Param("keyword") String keyword,
+                               @Param("manufacturer") String manufacturer,
+                               @Param("status") Integer status,
+                               @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                               @Param("cursorId") Long cursorId,
+                               @Param("limit") Integer limit,
+                               @Param("columns") List<String> columns);
+    
+    /**
+     * 估算药品总数（取自表统计信息）
+     */
+    Long estimateTotalDrugs();
     
     /**
      * 查询药品总数
@@ -68,13 +98,20 @@ public interface DrugMapper {
     
     /**
      * 批量查询药品
+     *
+     * @param columns 查询的列，为null时查询全部列
+     * @param status  状态过滤，为null时不过滤
      */
-    List<Drug> selectByIds(@Param("ids") List<Long> ids);
+    List<Drug> selectByIds(@Param("ids") List<Long> ids, @Param("columns") List<String> columns,
+                           @Param("status") Integer status);
     
     /**
      * 根据药品名称模糊查询
+     *
+     * @param columns 查询的列，为null时查询全部列
      */
-    List<Drug> selectByNameLike(@Param("name") String name, @Param("limit") Integer limit);
+    List<Drug> selectByNameLike(@Param("name") String name, @Param("limit") Integer limit,
+                                @Param("columns") List<String> columns);
     
     /**
      * 根据主要成分查询药品
@@ -83,8 +120,10 @@ public interface DrugMapper {
     
     /**
      * 查询热门药品
+     *
+     * @param columns 查询的列，为null时查询全部列
      */
-    List<Drug> selectPopularDrugs(@Param("limit") Integer limit);
+    List<Drug> selectPopularDrugs(@Param("limit") Integer limit, @Param("columns") List<String> columns);
     
     /**
      * 统计药品总数
@@ -105,4 +144,79 @@ public interface DrugMapper {
      * 检查批准文号是否存在
      */
     boolean existsByApprovalNumber(@Param("approvalNumber") String approvalNumber);
+    
+    /**
+     * 查询构建搜索索引、联想前缀树所需的字段（全量）
+     */
+    List<Drug> selectAllForIndex();
+    
+    /**
+     * 逐行回调所有药品的条形码和批准文号（构建布隆过滤器），不在内存中汇总
+     */
+    void selectAllKeys(ResultHandler<Drug> handler);
+    
+    /**
+     * 插入或按唯一键（条形码、批准文号）合并单个药品，一次往返
+     * <p>
+     * 合并时传入的非空字段覆盖原值，已有的条形码、批准文号不改写；执行后 drug.id 为新插入或被合并记录的ID。
+     *
+     * @return 1 表示新建，2 表示合并（合并总会刷新 updated_at，不会出现值未变化的情况）
+     */
+    int upsert(Drug drug);
+    
+    /**
+     * 流式查询药品目录用于导出，须在事务内遍历；遍历期间该连接不能执行其他查询
+     *
+     * @param columns 查询列（null为全部列）
+     * @param status  状态过滤（null为全部）
+     */
+    Cursor<Drug> selectForExport(@Param("columns") List<String> columns, @Param("status") Integer status);
+    
+    /**
+     * 批量插入药品
+     */
+    int batchInsert(@Param("drugs") List<Drug> drugs);
+    
+    /**
+     * 查询已存在的条形码
+     */
+    List<String> selectExistingBarcodes(@Param("barcodes") Collection<String> barcodes);
+    
+    /**
+     * 查询已存在的批准文号
+     */
+    List<String> selectExistingApprovalNumbers(@Param("approvalNumbers") Collection<String> approvalNumbers);
+    
+    /**
+     * 批量插入或更新药品（INSERT ... ON DUPLICATE KEY UPDATE，一次往返）
+     * <p>
+     * 新插入且未传状态的记录状态为正常；updateStatus 为false时已有记录的状态保持不变，
+     * 避免不带状态列的导入把已下架的药品重新上架。
+     *
+     * @param updateStatus 本批记录是否都带状态，为true时按导入值更新已有记录的状态
+     * @return 受影响行数：新插入计1，更新计2，内容未变计1（连接返回 found rows）
+     */
+    int batchUpsert(@Param("drugs") List<Drug> drugs, @Param("updateStatus") boolean updateStatus);
+    
+    /**
+     * 查询待补全的药品（只含补全所需的标识字段）
+     *
+     * @param retryBefore 上次尝试早于该时间的才会再次返回
+     */
+    List<Drug> selectIncomplete(@Param("retryBefore") LocalDateTime retryBefore, @Param("limit") Integer limit);
+    
+    /**
+     * 在指定药品中查询待补全的药品（只含补全所需的标识字段）
+     */
+    List<Drug> selectIncompleteByIds(@Param("ids") List<Long> ids, @Param("retryBefore") LocalDateTime retryBefore);
+    
+    /**
+     * 用API详情补全药品
+     */
+    int updateEnrichment(Drug drug);
+    
+    /**
+     * 记录补全尝试
+     */
+    int markEnrichAttempted(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.health.mapper;
+
+import com.health.entity.DrugSearchCache;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 药品搜索缓存数据访问层
+ * 
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Mapper
+public interface DrugSearchCacheMapper {
+    
+    /**
+     * 根据关键词、搜索类型和页码查询缓存（包含已过期的）
+     */
+    DrugSearchCache selectByKey(@Param("searchKeyword") String searchKeyword,
+                                @Param("searchType") Integer searchType,
+                                @Param("pageNo") Integer pageNo);
+    
+    /**
+     * 插入或覆盖缓存
+     */
+    int upsert(DrugSearchCache cache);
+    
+    /**
+     * 批量累加命中次数
+     *
+     * @param hits 缓存ID到本批命中次数的映射
+     */
+    int batchIncreaseHitCount(@Param("hits") Map<Long, Long> hits, @Param("lastHitTime") LocalDateTime lastHitTime);
+    
+    /**
+     * 删除过期时间早于指定时间的缓存
+     */
+    int deleteExpiredBefore(@Param("time") LocalDateTime time, @Param("limit") Integer limit);
+}
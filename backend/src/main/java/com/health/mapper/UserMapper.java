@@ -4,6 +4,7 @@ import com.health.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -53,6 +54,20 @@ public interface UserMapper {
                          @Param("offset") Integer offset, 
                          @Param("limit") Integer limit);
     
+    /**
+     * 游标方式查询用户列表，按 (created_at, id) 倒序，从游标之后开始读取
+     */
+    List<User> selectListAfter(@Param("nickname") String nickname,
+                              @Param("status") Integer status,
+                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                              @Param("cursorId") Long cursorId,
+                              @Param("limit") Integer limit);
+    
+    /**
+     * 估算用户总数（取自表统计信息）
+     */
+    Long estimateTotalUsers();
+    
     /**
      * 查询用户总数
      */
@@ -79,6 +94,11 @@ public interface UserMapper {
      */
     Long countTodayNewUsers();
     
+    /**
+     * 查询活跃用户ID
+     */
+    List<Long> selectActiveUserIds(@Param("days") Integer days);
+    
     /**
      * 统计活跃用户数
      */
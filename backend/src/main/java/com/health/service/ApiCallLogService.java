@@ -0,0 +1,141 @@
+package com.health.service;
+
+import com.health.config.ApiCallLogConfig;
+import com.health.entity.ApiCallLog;
+import com.health.mapper.ApiCallLogMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * API调用日志异步写入服务
+ * <p>
+ * 调用方只把日志放入有界缓冲区，不等待数据库；后台定时批量插入 api_call_logs。
+ * 缓冲区已满时丢弃新日志并计数，日志写入永远不会阻塞或拖慢API调用。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class ApiCallLogService {
+
+    @Autowired
+    private ApiCallLogConfig apiCallLogConfig;
+
+    @Autowired
+    private ApiCallLogMapper apiCallLogMapper;
+
+    private BlockingQueue<ApiCallLog> buffer;
+
+    /**
+     * 持锁期间会写数据库，使用显式锁而非synchronized，避免虚拟线程被钉住
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(apiCallLogConfig.getBufferCapacity());
+    }
+
+    /**
+     * 记录一次API调用
+     *
+     * @param responseCode 响应状态码，未收到响应时为null
+     * @param errorMessage 失败原因，成功时为null
+     */
+    public void record(ApiCallLog.ApiType apiType, String apiUrl, String requestParams, Integer responseCode,
+                       long responseTimeMs, boolean success, String errorMessage) {
+        ApiCallLog callLog = new ApiCallLog();
+        callLog.setApiType(apiType.getCode());
+        callLog.setApiUrl(apiUrl);
+        callLog.setRequestParams(truncate(requestParams, apiCallLogConfig.getMaxParamsLength()));
+        callLog.setResponseCode(responseCode);
+        callLog.setResponseTimeMs((int) Math.min(Integer.MAX_VALUE, responseTimeMs));
+        callLog.setSuccess(success);
+        callLog.setErrorMessage(truncate(errorMessage, apiCallLogConfig.getMaxErrorLength()));
+        callLog.setCreatedAt(LocalDateTime.now());
+
+        if (buffer.offer(callLog)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 获取日志写入统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("buffered", buffer.size());
+        stats.put("bufferCapacity", apiCallLogConfig.getBufferCapacity());
+        stats.put("recorded", recorded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    /**
+     * 定时刷盘
+     */
+    @Scheduled(fixedDelayString = "${health.api-call-log.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 应用关闭前写入缓冲区中剩余日志
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            List<ApiCallLog> batch = new ArrayList<>(apiCallLogConfig.getBatchSize());
+            while (buffer.drainTo(batch, apiCallLogConfig.getBatchSize()) > 0) {
+                try {
+                    apiCallLogMapper.batchInsert(batch);
+                    written.add(batch.size());
+                } catch (Exception e) {
+                    // 日志写入失败不重试，避免数据库异常时缓冲区持续积压
+                    failed.add(batch.size());
+                    log.warn("批量写入API调用日志失败: size={}", batch.size(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,155 @@
+package com.health.service;
+
+import com.health.config.DrugApiResilienceConfig;
+import com.health.util.AdaptiveConcurrencyLimit;
+import com.health.util.CircuitBreaker;
+import com.health.util.RequestDeadline;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 第三方药品API的熔断与并发保护
+ * <p>
+ * 每次调用前依次检查：请求剩余时间是否足够、并发是否超过自适应上限、熔断器是否放行，
+ * 任一不满足即抛出 {@link RejectedException}，调用方按"API无结果"处理，只返回本地数据，
+ * 不再占用请求线程等待一个已经变慢的下游。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugApiGuard {
+
+    @Autowired
+    private DrugApiResilienceConfig resilienceConfig;
+
+    private CircuitBreaker circuitBreaker;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejectedByCircuit = new LongAdder();
+    private final LongAdder rejectedByLimit = new LongAdder();
+    private final LongAdder rejectedByDeadline = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(
+                resilienceConfig.getWindowSize(),
+                resilienceConfig.getMinimumCalls(),
+                resilienceConfig.getFailureRateThreshold(),
+                resilienceConfig.getSlowCallRateThreshold(),
+                resilienceConfig.getSlowCallThresholdMs(),
+                resilienceConfig.getOpenDurationMs(),
+                resilienceConfig.getHalfOpenPermits());
+        concurrencyLimit = new AdaptiveConcurrencyLimit(
+                resilienceConfig.getInitialLimit(),
+                resilienceConfig.getMinLimit(),
+                resilienceConfig.getMaxLimit(),
+                resilienceConfig.getSmoothing());
+    }
+
+    /**
+     * 申请一次API调用许可
+     *
+     * @throws RejectedException 剩余时间不足、熔断打开或并发已满
+     */
+    public Permit acquire() {
+        long budgetMs = Math.min(resilienceConfig.getCallTimeoutMs(),
+                RequestDeadline.remainingMillis(resilienceConfig.getCallTimeoutMs()));
+        if (budgetMs < resilienceConfig.getMinBudgetMs()) {
+            rejectedByDeadline.increment();
+            throw new RejectedException("请求剩余时间不足");
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            rejectedByLimit.increment();
+            throw new RejectedException("药品API并发已达上限");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            concurrencyLimit.cancel();
+            rejectedByCircuit.increment();
+            throw new RejectedException("药品API熔断中");
+        }
+        calls.increment();
+        return new Permit(budgetMs);
+    }
+
+    /**
+     * 熔断器是否处于关闭状态，后台任务据此避让，不参与半开探测
+     */
+    public boolean isCircuitClosed() {
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * 获取熔断与限流统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("circuitState", circuitBreaker.getState().name());
+        stats.put("failureRate", circuitBreaker.getFailureRate());
+        stats.put("slowCallRate", circuitBreaker.getSlowCallRate());
+        stats.put("concurrencyLimit", concurrencyLimit.getLimit());
+        stats.put("inFlight", concurrencyLimit.getInFlight());
+        stats.put("baselineRttMs", concurrencyLimit.getLongRttMillis());
+        stats.put("calls", calls.sum());
+        stats.put("failures", failures.sum());
+        stats.put("rejectedByCircuit", rejectedByCircuit.sum());
+        stats.put("rejectedByLimit", rejectedByLimit.sum());
+        stats.put("rejectedByDeadline", rejectedByDeadline.sum());
+        return stats;
+    }
+
+    /**
+     * 一次调用许可，调用结束后必须调用 {@link #release(boolean)}
+     */
+    public class Permit {
+
+        private final long budgetMs;
+        private final long startNanos = System.nanoTime();
+
+        private Permit(long budgetMs) {
+            this.budgetMs = budgetMs;
+        }
+
+        /**
+         * 本次调用可用的最长时间，单位毫秒
+         */
+        public long getBudgetMs() {
+            return budgetMs;
+        }
+
+        public void release(boolean success) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            if (!success) {
+                failures.increment();
+            }
+            CircuitBreaker.State before = circuitBreaker.getState();
+            circuitBreaker.record(success, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            concurrencyLimit.release(elapsedNanos, !success);
+            CircuitBreaker.State after = circuitBreaker.getState();
+            if (before != after) {
+                log.warn("药品API熔断状态变更: {} -> {}", before, after);
+            }
+        }
+    }
+
+    /**
+     * 调用被保护层拒绝，未实际请求第三方API
+     */
+    public static class RejectedException extends RuntimeException {
+
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
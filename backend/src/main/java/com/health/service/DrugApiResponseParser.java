@@ -0,0 +1,287 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.util.Fnv;
+import com.health.entity.Drug;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 药品API响应的流式解析
+ * <p>
+ * 直接从响应字节流逐个读取字段写入 Drug，不构造完整字符串和 JSONObject 树。
+ * 字段名按 FNV-64 哈希匹配（与 fastjson2 内部一致），查找表为排序后的哈希数组，
+ * 匹配过程不为字段名分配对象；未映射的字段整体跳过。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+final class DrugApiResponseParser {
+
+    private static final long HASH_CODE = Fnv.hashCode64("code");
+    private static final long HASH_DATA = Fnv.hashCode64("data");
+    private static final long HASH_LIST = Fnv.hashCode64("list");
+    private static final int SUCCESS_CODE = 200;
+
+    /**
+     * 详情接口字段映射
+     */
+    static final FieldMapping DETAIL = new FieldMapping(Drug.DataSource.YAOZHI_API, commonFields(true));
+
+    /**
+     * 条形码接口字段映射，与详情接口相同，另含条形码
+     */
+    static final FieldMapping BARCODE = new FieldMapping(Drug.DataSource.BARCODE, barcodeFields());
+
+    /**
+     * 搜索接口字段映射
+     */
+    static final FieldMapping SEARCH = new FieldMapping(Drug.DataSource.YAOZHI_API, searchFields());
+
+    private DrugApiResponseParser() {
+    }
+
+    /**
+     * 解析 {"code":200,"data":{...}} 形式的单条响应，code不为200或无data时返回null
+     */
+    static Drug parseSingle(InputStream in, FieldMapping mapping) {
+        SingleResponse response = readSingle(in, mapping);
+        return response.code() == SUCCESS_CODE ? response.drug() : null;
+    }
+
+    /**
+     * 解析单条响应并保留业务状态码，用于区分“API明确没有数据”与“API出错”
+     */
+    static SingleResponse readSingle(InputStream in, FieldMapping mapping) {
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            if (!reader.nextIfObjectStart()) {
+                return new SingleResponse(-1, null);
+            }
+            int code = -1;
+            Drug drug = null;
+            while (!reader.nextIfObjectEnd()) {
+                long hash = reader.readFieldNameHashCode();
+                if (hash == HASH_CODE) {
+                    code = readCode(reader);
+                } else if (hash == HASH_DATA && reader.isObject()) {
+                    drug = readDrug(reader, mapping);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return new SingleResponse(code, drug);
+        }
+    }
+
+    /**
+     * 解析 {"code":200,"data":{"list":[...]}} 形式的列表响应，code不为200时返回空列表
+     */
+    static List<Drug> parseList(InputStream in, FieldMapping mapping) {
+        return readList(in, mapping).drugs();
+    }
+
+    /**
+     * 解析列表响应并保留业务状态码，code不为200时列表为空
+     */
+    static ListResponse readList(InputStream in, FieldMapping mapping) {
+        List<Drug> drugs = new ArrayList<>();
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            if (!reader.nextIfObjectStart()) {
+                return new ListResponse(-1, drugs);
+            }
+            int code = -1;
+            while (!reader.nextIfObjectEnd()) {
+                long hash = reader.readFieldNameHashCode();
+                if (hash == HASH_CODE) {
+                    code = readCode(reader);
+                } else if (hash == HASH_DATA && reader.isObject()) {
+                    readListContainer(reader, mapping, drugs);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (code != SUCCESS_CODE) {
+                drugs.clear();
+            }
+            return new ListResponse(code, drugs);
+        }
+    }
+
+    private static void readListContainer(JSONReader reader, FieldMapping mapping, List<Drug> drugs) {
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            long hash = reader.readFieldNameHashCode();
+            if (hash == HASH_LIST && reader.isArray()) {
+                reader.nextIfArrayStart();
+                while (!reader.nextIfArrayEnd()) {
+                    if (reader.isObject()) {
+                        drugs.add(readDrug(reader, mapping));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+    }
+
+    private static Drug readDrug(JSONReader reader, FieldMapping mapping) {
+        Drug drug = new Drug();
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            FieldBinder binder = mapping.find(reader.readFieldNameHashCode());
+            if (binder == null) {
+                reader.skipValue();
+            } else if (!reader.nextIfNull()) {
+                binder.bind(reader, drug);
+            }
+        }
+        drug.setDataSource(mapping.dataSource.getCode());
+        LocalDateTime now = LocalDateTime.now();
+        drug.setCreatedAt(now);
+        drug.setUpdatedAt(now);
+        return drug;
+    }
+
+    private static int readCode(JSONReader reader) {
+        if (reader.isString()) {
+            String code = reader.readString();
+            try {
+                return Integer.parseInt(code.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return reader.readInt32Value();
+    }
+
+    private static Map<String, FieldBinder> commonFields(boolean includePrice) {
+        Map<String, FieldBinder> fields = new LinkedHashMap<>();
+        fields.put("id", string(Drug::setDrugId));
+        fields.put("name", string(Drug::setName));
+        fields.put("manuName", string(Drug::setManufacturer));
+        fields.put("spec", string(Drug::setSpecification));
+        fields.put("character", string(Drug::setDosageForm));
+        fields.put("basis", string(Drug::setMainIngredient));
+        fields.put("purpose", string(Drug::setIndications));
+        fields.put("dosage", string(Drug::setDosageUsage));
+        fields.put("taboo", string(Drug::setContraindications));
+        fields.put("consideration", string(Drug::setPrecautions));
+        fields.put("storage", string(Drug::setStorageConditions));
+        fields.put("validity", string(Drug::setValidityPeriod));
+        fields.put("approval", string(Drug::setApprovalNumber));
+        fields.put("img", string(Drug::setImageUrl));
+        if (includePrice) {
+            fields.put("price", (reader, drug) -> drug.setPrice(reader.readBigDecimal()));
+        }
+        return fields;
+    }
+
+    private static Map<String, FieldBinder> barcodeFields() {
+        Map<String, FieldBinder> fields = commonFields(false);
+        fields.put("code", string(Drug::setBarcode));
+        return fields;
+    }
+
+    private static Map<String, FieldBinder> searchFields() {
+        Map<String, FieldBinder> fields = new LinkedHashMap<>();
+        fields.put("id", string(Drug::setDrugId));
+        fields.put("name", string(Drug::setName));
+        fields.put("manufacturer", string(Drug::setManufacturer));
+        fields.put("specification", string(Drug::setSpecification));
+        fields.put("dosageForm", string(Drug::setDosageForm));
+        fields.put("ingredients", string(Drug::setMainIngredient));
+        fields.put("indications", string(Drug::setIndications));
+        fields.put("usage", string(Drug::setDosageUsage));
+        fields.put("contraindications", string(Drug::setContraindications));
+        fields.put("precautions", string(Drug::setPrecautions));
+        fields.put("storage", string(Drug::setStorageConditions));
+        fields.put("validity", string(Drug::setValidityPeriod));
+        fields.put("approvalNumber", string(Drug::setApprovalNumber));
+        fields.put("imageUrl", string(Drug::setImageUrl));
+        fields.put("price", (reader, drug) -> drug.setPrice(reader.readBigDecimal()));
+        return fields;
+    }
+
+    private static FieldBinder string(BiConsumer<Drug, String> setter) {
+        return (reader, drug) -> setter.accept(drug, reader.readString());
+    }
+
+    /**
+     * 单条响应的业务状态码与数据
+     */
+    record SingleResponse(int code, Drug drug) {
+
+        /**
+         * API是否明确答复“没有该数据”：业务状态码正常或为客户端类错误（如不存在），且没有数据；
+         * 缺少状态码或服务端类错误不算，避免把临时故障当作不存在
+         */
+        boolean isNotFound() {
+            return drug == null && code >= SUCCESS_CODE && code < 500;
+        }
+    }
+
+    /**
+     * 列表响应的业务状态码与数据
+     */
+    record ListResponse(int code, List<Drug> drugs) {
+
+        /**
+         * API是否给出了明确答复（有结果或明确没有结果）；缺少状态码或服务端类错误不算
+         */
+        boolean isAnswered() {
+            return code >= SUCCESS_CODE && code < 500;
+        }
+    }
+
+    /**
+     * 从当前位置读取一个字段值写入 Drug
+     */
+    @FunctionalInterface
+    interface FieldBinder {
+
+        void bind(JSONReader reader, Drug drug);
+    }
+
+    /**
+     * 字段名哈希到写入逻辑的查找表
+     */
+    static final class FieldMapping {
+
+        private final Drug.DataSource dataSource;
+        private final long[] hashes;
+        private final FieldBinder[] binders;
+
+        FieldMapping(Drug.DataSource dataSource, Map<String, FieldBinder> fields) {
+            this.dataSource = dataSource;
+            long[] sorted = new long[fields.size()];
+            Map<Long, FieldBinder> byHash = new LinkedHashMap<>();
+            int i = 0;
+            for (Map.Entry<String, FieldBinder> entry : fields.entrySet()) {
+                long hash = Fnv.hashCode64(entry.getKey());
+                sorted[i++] = hash;
+                byHash.put(hash, entry.getValue());
+            }
+            Arrays.sort(sorted);
+            this.hashes = sorted;
+            this.binders = new FieldBinder[sorted.length];
+            for (int j = 0; j < sorted.length; j++) {
+                binders[j] = byHash.get(sorted[j]);
+            }
+        }
+
+        FieldBinder find(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            return index >= 0 ? binders[index] : null;
+        }
+    }
+}
@@ -1,57 +1,114 @@
 package com.health.service;
 
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
+import cn.hutool.core.bean.BeanUtil;
+import com.health.config.DrugApiConfig;
+import com.health.entity.ApiCallLog;
 import com.health.entity.Drug;
-import com.health.mapper.ApiCallLogMapper;
-import com.health.util.HttpUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.util.EntityUtils;
+import com.health.util.SingleFlight;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Function;
 
 @Service
 public class DrugApiService {
 
     private static final Logger logger = LoggerFactory.getLogger(DrugApiService.class);
 
-    @Value("${drug.api.host}")
-    private String apiHost;
+    @Autowired
+    private DrugApiConfig drugApiConfig;
 
-    @Value("${drug.api.appcode}")
-    private String appCode;
+    @Autowired
+    private ApiCallLogService apiCallLogService;
 
     @Autowired
-    private ApiCallLogMapper apiCallLogMapper;
+    private DrugApiGuard drugApiGuard;
+
+    /**
+     * 共享连接池的HttpClient，见 RestTemplateConfig
+     */
+    @Autowired
+    private CloseableHttpClient httpClient;
+
+    /**
+     * 条形码查询的并发合并，同一条形码同时只调用一次API
+     */
+    private final SingleFlight<DrugLookup> barcodeFlight = new SingleFlight<>();
+
+    /**
+     * 关键词搜索的并发合并，按关键词+页码合并
+     */
+    private final SingleFlight<SearchLookup> searchFlight = new SingleFlight<>();
 
     /**
      * 根据药品ID查询详细信息
      */
     public Drug queryDrugDetail(String drugId) {
+        return lookupDrugDetail(drugId).getDrug();
+    }
+
+    /**
+     * 根据药品ID查询详细信息，并区分“API明确没有该药品”与调用失败、被熔断跳过
+     */
+    public DrugLookup lookupDrugDetail(String drugId) {
         String path = "/drug/detail";
         Map<String, String> bodys = new HashMap<>();
         bodys.put("id", drugId);
 
         try {
-            String response = callApi(path, bodys);
-            return parseDrugFromResponse(response, "detail");
+            DrugApiResponseParser.SingleResponse response = callApi(ApiCallLog.ApiType.DRUG_DETAIL, path, bodys,
+                    in -> DrugApiResponseParser.readSingle(in, DrugApiResponseParser.DETAIL));
+            if (response == null) {
+                // 非2xx响应
+                return new DrugLookup(null, false);
+            }
+            return new DrugLookup(response.code() == 200 ? response.drug() : null, response.isNotFound());
+        } catch (DrugApiGuard.RejectedException e) {
+            logger.debug("跳过药品详情查询: drugId={}, reason={}", drugId, e.getMessage());
+            return new DrugLookup(null, false);
         } catch (Exception e) {
             logger.error("查询药品详情失败: drugId={}", drugId, e);
-            return null;
+            return new DrugLookup(null, false);
         }
     }
 
     /**
-     * 根据关键词搜索药品
+     * 根据关键词搜索药品，调用失败时返回空列表
      */
     public List<Drug> searchDrugs(String keyword, int page, int size) {
+        return lookupSearch(keyword, page).getDrugs();
+    }
+
+    /**
+     * 根据关键词搜索药品，并区分“API明确没有结果”与调用失败、被熔断跳过
+     */
+    public SearchLookup lookupSearch(String keyword, int page) {
+        SearchLookup lookup = searchFlight.execute(keyword + "#" + page, () -> doSearchDrugs(keyword, page));
+        // 并发等待方共享同一结果，返回副本避免调用方互相影响
+        List<Drug> drugs = new ArrayList<>(lookup.drugs.size());
+        for (Drug drug : lookup.drugs) {
+            drugs.add(copy(drug));
+        }
+        return new SearchLookup(drugs, lookup.failed);
+    }
+
+    private SearchLookup doSearchDrugs(String keyword, int page) {
         String path = "/tmcx/drug/query";
         Map<String, String> bodys = new HashMap<>();
         bodys.put("key", keyword);
@@ -59,11 +116,20 @@ public class DrugApiService {
         bodys.put("pageNo", String.valueOf(page));
 
         try {
-            String response = callApi(path, bodys);
-            return parseDrugListFromResponse(response);
+            DrugApiResponseParser.ListResponse response = callApi(ApiCallLog.ApiType.DRUG_SEARCH, path, bodys,
+                    in -> DrugApiResponseParser.readList(in, DrugApiResponseParser.SEARCH));
+            if (response == null) {
+                // 非2xx响应
+                return new SearchLookup(new ArrayList<>(), true);
+            }
+            return new SearchLookup(response.code() == 200 ? response.drugs() : new ArrayList<>(),
+                    !response.isAnswered());
+        } catch (DrugApiGuard.RejectedException e) {
+            logger.debug("跳过药品搜索: keyword={}, reason={}", keyword, e.getMessage());
+            return new SearchLookup(new ArrayList<>(), true);
         } catch (Exception e) {
             logger.error("搜索药品失败: keyword={}, page={}", keyword, page, e);
-            return new ArrayList<>();
+            return new SearchLookup(new ArrayList<>(), true);
         }
     }
 
@@ -71,205 +137,181 @@ public class DrugApiService {
      * 根据条形码查询药品信息
      */
     public Drug queryDrugByBarcode(String barcode) {
-        String path = "/brugs/barCode/query";
-        Map<String, String> bodys = new HashMap<>();
-        bodys.put("code", barcode);
-
-        try {
-            String response = callApi(path, bodys);
-            return parseBarcodeResponse(response);
-        } catch (Exception e) {
-            logger.error("条形码查询失败: barcode={}", barcode, e);
-            return null;
-        }
+        return lookupDrugByBarcode(barcode).getDrug();
     }
 
     /**
-     * 调用第三方API
+     * 根据条形码查询药品信息，并区分“API明确没有该药品”与调用失败、被熔断跳过
      */
-    private String callApi(String path, Map<String, String> bodys) throws Exception {
-        String method = "POST";
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Authorization", "APPCODE " + appCode);
-        headers.put("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        Map<String, String> querys = new HashMap<>();
-
-        // 记录API调用日志
-        logApiCall(path, bodys.toString());
-
-        HttpResponse response = HttpUtils.doPost(apiHost, path, method, headers, querys, bodys);
-        return EntityUtils.toString(response.getEntity());
+    public DrugLookup lookupDrugByBarcode(String barcode) {
+        DrugLookup lookup = barcodeFlight.execute(barcode, () -> doQueryDrugByBarcode(barcode));
+        // 调用方会缓存、落库并修改返回的药品，每个等待方各自拿一份副本
+        return lookup.drug == null ? lookup : new DrugLookup(copy(lookup.drug), lookup.notFound);
     }
 
-    /**
-     * 解析药品详情响应
-     */
-    private Drug parseDrugFromResponse(String response, String type) {
+    private static Drug copy(Drug drug) {
+        return BeanUtil.copyProperties(drug, Drug.class);
+    }
+
+    private DrugLookup doQueryDrugByBarcode(String barcode) {
+        String path = "/brugs/barCode/query";
+        Map<String, String> bodys = new HashMap<>();
+        bodys.put("code", barcode);
+
         try {
-            JSONObject jsonResponse = JSONObject.parseObject(response);
-            if (jsonResponse.getInteger("code") == 200) {
-                JSONObject data = jsonResponse.getJSONObject("data");
-                if (data != null) {
-                    if ("detail".equals(type)) {
-                        return convertJsonToDrugFromDetail(data);
-                    } else {
-                        return convertJsonToDrugFromSearch(data);
-                    }
-                }
+            DrugApiResponseParser.SingleResponse response = callApi(ApiCallLog.ApiType.BARCODE_QUERY, path, bodys,
+                    in -> DrugApiResponseParser.readSingle(in, DrugApiResponseParser.BARCODE));
+            if (response == null) {
+                // 非2xx响应
+                return new DrugLookup(null, false);
+            }
+            Drug drug = response.code() == 200 ? response.drug() : null;
+            if (drug != null && drug.getBarcode() == null) {
+                drug.setBarcode(barcode);
             }
+            return new DrugLookup(drug, response.isNotFound());
+        } catch (DrugApiGuard.RejectedException e) {
+            logger.debug("跳过条形码查询: barcode={}, reason={}", barcode, e.getMessage());
+            return new DrugLookup(null, false);
         } catch (Exception e) {
-            logger.error("解析药品响应失败: response={}", response, e);
+            logger.error("条形码查询失败: barcode={}", barcode, e);
+            return new DrugLookup(null, false);
         }
-        return null;
     }
 
     /**
-     * 解析条形码查询响应
+     * 调用第三方API，连接从共享连接池获取，读完响应后归还复用
+     * <p>
+     * 调用受 DrugApiGuard 保护：超时时间取请求剩余时间与单次上限中较小者，
+     * 熔断或并发已满时直接抛出 DrugApiGuard.RejectedException。
+     * 每次实际发出的调用都把耗时和结果异步写入调用日志。
+     *
+     * @param parser 2xx响应时直接从响应流解析结果
+     * @return 解析结果，非2xx响应时为null
      */
-    private Drug parseBarcodeResponse(String response) {
+    private <T> T callApi(ApiCallLog.ApiType apiType, String path, Map<String, String> bodys,
+                          Function<InputStream, T> parser) throws Exception {
+        DrugApiGuard.Permit permit = drugApiGuard.acquire();
+        String url = drugApiConfig.getHost() + path;
+        long start = System.nanoTime();
+        ApiResponse<T> response = null;
+        String error = null;
         try {
-            JSONObject jsonResponse = JSONObject.parseObject(response);
-            if (jsonResponse.getInteger("code") == 200) {
-                JSONObject data = jsonResponse.getJSONObject("data");
-                if (data != null) {
-                    return convertJsonToDrugFromBarcode(data);
-                }
+            response = doCallApi(url, bodys, permit.getBudgetMs(), parser);
+            // 服务端错误计入熔断统计
+            if (response.code >= HttpStatus.SC_SERVER_ERROR) {
+                throw new IOException("药品API返回错误状态: " + response.code);
             }
-        } catch (Exception e) {
-            logger.error("解析条形码响应失败: response={}", response, e);
+            return response.value;
+        } catch (Throwable e) {
+            // Error也要记录，否则许可按成功释放
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            throw e;
+        } finally {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            permit.release(error == null);
+            Integer code = response == null ? null : response.code;
+            boolean success = error == null && response != null && response.code < HttpStatus.SC_MULTIPLE_CHOICES;
+            apiCallLogService.record(apiType, url, bodys.toString(), code, elapsedMs, success, error);
         }
-        return null;
     }
 
-    /**
-     * 解析药品列表响应
-     */
-    private List<Drug> parseDrugListFromResponse(String response) {
-        List<Drug> drugs = new ArrayList<>();
-        try {
-            JSONObject jsonResponse = JSONObject.parseObject(response);
-            if (jsonResponse.getInteger("code") == 200) {
-                JSONObject data = jsonResponse.getJSONObject("data");
-                if (data != null) {
-                    JSONArray list = data.getJSONArray("list");
-                    if (list != null) {
-                        for (int i = 0; i < list.size(); i++) {
-                            JSONObject drugJson = list.getJSONObject(i);
-                            Drug drug = convertJsonToDrugFromSearch(drugJson);
-                            if (drug != null) {
-                                drugs.add(drug);
-                            }
-                        }
-                    }
+    private <T> ApiResponse<T> doCallApi(String url, Map<String, String> bodys, long budgetMs,
+                                         Function<InputStream, T> parser) throws IOException {
+        Timeout timeout = Timeout.ofMilliseconds(budgetMs);
+        HttpPost post = new HttpPost(url);
+        post.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout)
+                .setResponseTimeout(timeout)
+                .build());
+        post.setHeader("Authorization", "APPCODE " + drugApiConfig.getAppCode());
+        List<NameValuePair> form = new ArrayList<>(bodys.size());
+        for (Map.Entry<String, String> entry : bodys.entrySet()) {
+            form.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+        }
+        post.setEntity(new UrlEncodedFormEntity(form, StandardCharsets.UTF_8));
+
+        return httpClient.execute(post, response -> {
+            HttpEntity entity = response.getEntity();
+            T value = null;
+            if (response.getCode() < HttpStatus.SC_MULTIPLE_CHOICES && entity != null) {
+                try (InputStream in = entity.getContent()) {
+                    value = parser.apply(in);
                 }
             }
-        } catch (Exception e) {
-            logger.error("解析药品列表响应失败: response={}", response, e);
-        }
-        return drugs;
+            // 读完剩余内容，连接才能归还连接池复用
+            EntityUtils.consume(entity);
+            return new ApiResponse<>(response.getCode(), value);
+        });
     }
 
     /**
-     * 将详情API的JSON转换为Drug对象
+     * 单条药品查询（条形码、详情）结果
      */
-    private Drug convertJsonToDrugFromDetail(JSONObject drugJson) {
-        Drug drug = new Drug();
-        drug.setDrugId(drugJson.getString("id"));
-        drug.setDrugName(drugJson.getString("name"));
-        drug.setTrademark(drugJson.getString("trademark"));
-        drug.setManufacturer(drugJson.getString("manuName"));
-        drug.setSpecification(drugJson.getString("spec"));
-        drug.setDosageForm(drugJson.getString("character"));
-        drug.setMainIngredients(drugJson.getString("basis"));
-        drug.setIndications(drugJson.getString("purpose"));
-        drug.setUsageAndDosage(drugJson.getString("dosage"));
-        drug.setContraindications(drugJson.getString("taboo"));
-        drug.setPrecautions(drugJson.getString("consideration"));
-        drug.setStorageConditions(drugJson.getString("storage"));
-        drug.setValidityPeriod(drugJson.getString("validity"));
-        drug.setApprovalNumber(drugJson.getString("approval"));
-        drug.setImageUrl(drugJson.getString("img"));
-        
-        // 设置价格，如果有的话
-        if (drugJson.getBigDecimal("price") != null) {
-            drug.setPrice(drugJson.getBigDecimal("price"));
+    public static class DrugLookup {
+
+        private final Drug drug;
+        private final boolean notFound;
+
+        DrugLookup(Drug drug, boolean notFound) {
+            this.drug = drug;
+            this.notFound = notFound;
         }
-        
-        drug.setCreatedAt(LocalDateTime.now());
-        drug.setUpdatedAt(LocalDateTime.now());
-        return drug;
-    }
 
-    /**
-     * 将搜索API的JSON转换为Drug对象
-     */
-    private Drug convertJsonToDrugFromSearch(JSONObject drugJson) {
-        Drug drug = new Drug();
-        drug.setDrugId(drugJson.getString("id"));
-        drug.setDrugName(drugJson.getString("name"));
-        drug.setTrademark(drugJson.getString("trademark"));
-        drug.setManufacturer(drugJson.getString("manufacturer"));
-        drug.setSpecification(drugJson.getString("specification"));
-        drug.setDosageForm(drugJson.getString("dosageForm"));
-        drug.setMainIngredients(drugJson.getString("ingredients"));
-        drug.setIndications(drugJson.getString("indications"));
-        drug.setUsageAndDosage(drugJson.getString("usage"));
-        drug.setContraindications(drugJson.getString("contraindications"));
-        drug.setPrecautions(drugJson.getString("precautions"));
-        drug.setStorageConditions(drugJson.getString("storage"));
-        drug.setValidityPeriod(drugJson.getString("validity"));
-        drug.setApprovalNumber(drugJson.getString("approvalNumber"));
-        drug.setImageUrl(drugJson.getString("imageUrl"));
-        
-        // 设置价格
-        if (drugJson.getBigDecimal("price") != null) {
-            drug.setPrice(drugJson.getBigDecimal("price"));
+        /**
+         * 查到的药品，未查到或调用失败时为null
+         */
+        public Drug getDrug() {
+            return drug;
+        }
+
+        /**
+         * API是否明确答复没有该药品（可以做否定缓存）；调用失败、被熔断跳过时为false
+         */
+        public boolean isNotFound() {
+            return notFound;
         }
-        
-        drug.setCreatedAt(LocalDateTime.now());
-        drug.setUpdatedAt(LocalDateTime.now());
-        return drug;
     }
 
     /**
-     * 将条形码API的JSON转换为Drug对象
+     * 关键词搜索结果
      */
-    private Drug convertJsonToDrugFromBarcode(JSONObject drugJson) {
-        Drug drug = new Drug();
-        drug.setDrugId(drugJson.getString("code")); // 条形码作为ID
-        drug.setDrugName(drugJson.getString("name"));
-        drug.setTrademark(drugJson.getString("trademark"));
-        drug.setManufacturer(drugJson.getString("manuName"));
-        drug.setSpecification(drugJson.getString("spec"));
-        drug.setDosageForm(drugJson.getString("character"));
-        drug.setMainIngredients(drugJson.getString("basis"));
-        drug.setIndications(drugJson.getString("purpose"));
-        drug.setUsageAndDosage(drugJson.getString("dosage"));
-        drug.setContraindications(drugJson.getString("taboo"));
-        drug.setPrecautions(drugJson.getString("consideration"));
-        drug.setStorageConditions(drugJson.getString("storage"));
-        drug.setValidityPeriod(drugJson.getString("validity"));
-        drug.setApprovalNumber(drugJson.getString("approval"));
-        drug.setImageUrl(drugJson.getString("img"));
-        
-        drug.setCreatedAt(LocalDateTime.now());
-        drug.setUpdatedAt(LocalDateTime.now());
-        return drug;
+    public static class SearchLookup {
+
+        private final List<Drug> drugs;
+        private final boolean failed;
+
+        SearchLookup(List<Drug> drugs, boolean failed) {
+            this.drugs = drugs;
+            this.failed = failed;
+        }
+
+        /**
+         * 搜索到的药品，没有结果或调用失败时为空列表
+         */
+        public List<Drug> getDrugs() {
+            return drugs;
+        }
+
+        /**
+         * 是否调用失败、被熔断跳过或API返回错误；为false时空列表表示API明确没有结果
+         */
+        public boolean isFailed() {
+            return failed;
+        }
     }
 
     /**
-     * 记录API调用日志
+     * API响应状态码与解析结果
      */
-    private void logApiCall(String apiPath, String requestParams) {
-        try {
-            Map<String, Object> logData = new HashMap<>();
-            logData.put("apiPath", apiPath);
-            logData.put("requestParams", requestParams);
-            logData.put("callTime", LocalDateTime.now());
-            
-            apiCallLogMapper.insertApiCallLog(logData);
-        } catch (Exception e) {
-            logger.error("记录API调用日志失败", e);
+    private static class ApiResponse<T> {
+
+        private final int code;
+        private final T value;
+
+        ApiResponse(int code, T value) {
+            this.code = code;
+            this.value = value;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package com.health.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.alibaba.fastjson2.JSON;
+import com.health.config.DrugCacheConfig;
+import com.health.entity.Drug;
+import com.health.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 药品条形码两级缓存服务（本地LRU + Redis）
+ * <p>
+ * 同时缓存“API明确没有该药品”的否定结果：Redis中与正常结果共用同一个键，值为 {@link #NEGATIVE_VALUE}，
+ * 过期时间更短；本地使用单独的LRU，避免大量错误扫码挤掉正常缓存。失效条形码时两者一起失效。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugCacheService {
+
+    @Autowired
+    private DrugCacheConfig drugCacheConfig;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Redis中否定结果的值，正常结果为JSON对象，不会与之混淆
+     */
+    private static final String NEGATIVE_VALUE = "-";
+
+    /**
+     * {@link #lookup} 命中否定缓存时返回的标记对象，只用于按引用比较
+     */
+    public static final Drug MISSING = new Drug();
+
+    private LRUCache<String, Drug> localCache;
+
+    private LRUCache<String, Boolean> negativeCache;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder negativeWrites = new LongAdder();
+    private final LongAdder invalidRejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = CacheUtil.newLRUCache(drugCacheConfig.getLocalMaxSize(),
+                TimeUnit.SECONDS.toMillis(drugCacheConfig.getLocalTtlSeconds()));
+        negativeCache = CacheUtil.newLRUCache(drugCacheConfig.getNegativeMaxSize(),
+                TimeUnit.SECONDS.toMillis(drugCacheConfig.getNegativeTtlSeconds()));
+    }
+
+    /**
+     * 根据条形码读取缓存，依次查询本地缓存和Redis，未命中或命中否定结果都返回null
+     */
+    public Drug get(String barcode) {
+        Drug drug = lookup(barcode);
+        return drug == MISSING ? null : drug;
+    }
+
+    /**
+     * 根据条形码读取缓存，区分否定结果：未命中返回null，已知API没有该药品返回 {@link #MISSING}
+     */
+    public Drug lookup(String barcode) {
+        // 不刷新最后访问时间，保证本地缓存按固定TTL过期，限制多实例间的数据不一致窗口
+        Drug drug = localCache.get(barcode, false);
+        if (drug != null) {
+            localHits.increment();
+            return drug;
+        }
+        if (negativeCache.get(barcode, false) != null) {
+            negativeHits.increment();
+            return MISSING;
+        }
+
+        try {
+            String json = stringRedisTemplate.opsForValue().get(redisKey(barcode));
+            if (NEGATIVE_VALUE.equals(json)) {
+                negativeCache.put(barcode, Boolean.TRUE);
+                negativeHits.increment();
+                return MISSING;
+            }
+            if (json != null) {
+                drug = JSON.parseObject(json, Drug.class);
+                localCache.put(barcode, drug);
+                redisHits.increment();
+                return drug;
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis药品缓存失败: barcode={}", barcode, e);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 记录API明确没有该药品，写入本地与Redis否定缓存；已有正常缓存时不覆盖
+     */
+    public void putMissing(String barcode) {
+        if (barcode == null) {
+            return;
+        }
+        negativeCache.put(barcode, Boolean.TRUE);
+        negativeWrites.increment();
+        try {
+            stringRedisTemplate.opsForValue().setIfAbsent(redisKey(barcode), NEGATIVE_VALUE,
+                    drugCacheConfig.getNegativeTtlSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入Redis药品否定缓存失败: barcode={}", barcode, e);
+        }
+    }
+
+    /**
+     * 记录一次因校验位错误被直接拒绝的查询
+     */
+    public void recordInvalid() {
+        invalidRejected.increment();
+    }
+
+    /**
+     * 写入两级缓存
+     */
+    public void put(String barcode, Drug drug) {
+        if (barcode == null || drug == null) {
+            return;
+        }
+        localCache.put(barcode, drug);
+        negativeCache.remove(barcode);
+        try {
+            stringRedisTemplate.opsForValue().set(redisKey(barcode), JSON.toJSONString(drug),
+                    drugCacheConfig.getRedisTtlSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入Redis药品缓存失败: barcode={}", barcode, e);
+        }
+    }
+
+    /**
+     * 失效指定条形码的缓存
+     * <p>
+     * 在事务中调用时，除立即失效外还会在事务提交后再失效一次，
+     * 避免提交前并发读取把旧数据重新写回缓存。
+     */
+    public void evict(String barcode) {
+        if (barcode == null) {
+            return;
+        }
+        doEvict(barcode);
+        TransactionUtils.afterCommit(() -> doEvict(barcode));
+    }
+
+    /**
+     * 批量失效多个条形码的缓存，Redis中的键一次删除
+     * <p>
+     * 供批量导入等不在事务中的大批量写入使用，写入提交后调用。
+     */
+    public void evictAll(Collection<String> barcodes) {
+        List<String> keys = new ArrayList<>(barcodes.size());
+        for (String barcode : barcodes) {
+            if (barcode != null) {
+                localCache.remove(barcode);
+                negativeCache.remove(barcode);
+                keys.add(redisKey(barcode));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        evictions.add(keys.size());
+        try {
+            stringRedisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("批量删除Redis药品缓存失败: count={}", keys.size(), e);
+        }
+    }
+
+    /**
+     * 获取缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long local = localHits.sum();
+        long redis = redisHits.sum();
+        long miss = misses.sum();
+        long total = local + redis + miss;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("localHits", local);
+        stats.put("redisHits", redis);
+        stats.put("misses", miss);
+        stats.put("evictions", evictions.sum());
+        stats.put("localSize", localCache.size());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("negativeWrites", negativeWrites.sum());
+        stats.put("negativeSize", negativeCache.size());
+        stats.put("invalidRejected", invalidRejected.sum());
+        stats.put("hitRate", total == 0 ? 0D : (double) (local + redis) / total);
+        return stats;
+    }
+
+    private void doEvict(String barcode) {
+        localCache.remove(barcode);
+        negativeCache.remove(barcode);
+        evictions.increment();
+        try {
+            stringRedisTemplate.delete(redisKey(barcode));
+        } catch (Exception e) {
+            log.warn("删除Redis药品缓存失败: barcode={}", barcode, e);
+        }
+    }
+
+    private String redisKey(String barcode) {
+        return drugCacheConfig.getRedisKeyPrefix() + barcode;
+    }
+}
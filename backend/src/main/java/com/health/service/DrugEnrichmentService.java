@@ -0,0 +1,278 @@
+package com.health.service;
+
+import com.health.config.DrugEnrichmentConfig;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 药品信息后台补全服务
+ * <p>
+ * 条形码API返回的药品信息较简略（缺少适应症、用法用量等说明书内容）。后台定时按 idx_complete_source
+ * 扫描未完整的药品，热门药品优先，以限定的并发和速率调用API详情接口补全，补全后详情请求都由本地数据响应。
+ * 没有药品业务ID的记录按批准文号或名称搜索匹配。API明确答复没有数据的记录记下尝试时间，隔一段时间再试；
+ * 超时、服务端错误、熔断跳过等调用失败不记尝试时间，计入本轮失败数，达到上限或药品API熔断时本轮立即停止，
+ * 不与用户请求争抢API配额。
+ * <p>
+ * 定时任务只负责把一轮补全交给补全线程池，限速等待和等待本轮结束都不占用共享的调度线程。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugEnrichmentService {
+
+    /**
+     * 说明书中表示“无内容”的占位文本
+     */
+    private static final String PLACEHOLDER_INDICATIONS = "尚不明确";
+    private static final String PLACEHOLDER_DOSAGE_USAGE = "详见说明书";
+
+    @Autowired
+    private DrugEnrichmentConfig drugEnrichmentConfig;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    @Autowired
+    private DrugApiService drugApiService;
+
+    @Autowired
+    private DrugApiGuard drugApiGuard;
+
+    @Autowired
+    private DrugService drugService;
+
+    @Autowired
+    private PopularDrugTracker popularDrugTracker;
+
+    @Autowired
+    private ThreadPoolTaskExecutor drugEnrichExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder abortedRuns = new LongAdder();
+
+    /**
+     * 药品说明书信息是否完整，与存储过程 sp_get_drug_detail_by_drug_id 的判断一致：
+     * 适应症、用法用量、禁忌、不良反应任意一项有实际内容即视为完整
+     */
+    public static boolean isComplete(Drug drug) {
+        return hasText(drug.getIndications(), PLACEHOLDER_INDICATIONS)
+                || hasText(drug.getDosageUsage(), PLACEHOLDER_DOSAGE_USAGE)
+                || hasText(drug.getContraindications(), null)
+                || hasText(drug.getAdverseReactions(), null);
+    }
+
+    /**
+     * 定时触发一轮补全，上一轮未结束时跳过
+     */
+    @Scheduled(fixedDelayString = "${health.drug-enrich.interval-ms:60000}",
+            initialDelayString = "${health.drug-enrich.interval-ms:60000}")
+    public void scheduledEnrich() {
+        if (!drugEnrichmentConfig.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drugEnrichExecutor.execute(this::runBatch);
+        } catch (RuntimeException e) {
+            running.set(false);
+            log.error("提交药品信息后台补全失败", e);
+        }
+    }
+
+    /**
+     * 获取补全统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", drugEnrichmentConfig.isEnabled());
+        stats.put("running", running.get());
+        stats.put("runs", runs.sum());
+        stats.put("completed", completed.sum());
+        stats.put("partial", partial.sum());
+        stats.put("notFound", notFound.sum());
+        stats.put("failed", failed.sum());
+        stats.put("abortedRuns", abortedRuns.sum());
+        return stats;
+    }
+
+    private void runBatch() {
+        try {
+            runs.increment();
+            enrichBatch();
+        } catch (Exception e) {
+            log.error("药品信息后台补全失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void enrichBatch() {
+        List<Drug> candidates = pickCandidates(drugEnrichmentConfig.getBatchSize());
+        if (candidates.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Semaphore inFlight = new Semaphore(drugEnrichmentConfig.getParallelism());
+        AtomicInteger runFailures = new AtomicInteger();
+        long intervalNanos = drugEnrichmentConfig.getRatePerSecond() > 0
+                ? (long) (1_000_000_000L / drugEnrichmentConfig.getRatePerSecond()) : 0L;
+        long nextSlot = System.nanoTime();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(candidates.size());
+        boolean aborted = false;
+
+        for (Drug drug : candidates) {
+            if (!drugApiGuard.isCircuitClosed()
+                    || runFailures.get() >= drugEnrichmentConfig.getMaxFailuresPerRun()) {
+                aborted = true;
+                break;
+            }
+            // 按速率排队，再等待并发许可
+            long wait = nextSlot - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            nextSlot = Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+            inFlight.acquireUninterruptibly();
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    enrichOne(drug, runFailures);
+                } finally {
+                    inFlight.release();
+                }
+            }, drugEnrichExecutor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+        if (aborted) {
+            abortedRuns.increment();
+        }
+        log.info("药品信息后台补全完成: candidates={}, submitted={}, failures={}, aborted={}, costMs={}",
+                candidates.size(), tasks.size(), runFailures.get(), aborted, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 选出本轮待补全的药品：先取近一周热门药品中未完整的，再按 idx_complete_source 顺序扫描补足
+     */
+    private List<Drug> pickCandidates(int limit) {
+        LocalDateTime retryBefore = LocalDateTime.now().minusHours(drugEnrichmentConfig.getRetryIntervalHours());
+        Map<Long, Drug> picked = new LinkedHashMap<>();
+
+        List<Long> hotIds = popularDrugTracker.top(PopularDrugTracker.Window.WEEK,
+                drugEnrichmentConfig.getPopularScanSize());
+        if (!hotIds.isEmpty()) {
+            Map<Long, Drug> incomplete = new HashMap<>();
+            for (Drug drug : drugMapper.selectIncompleteByIds(hotIds, retryBefore)) {
+                incomplete.put(drug.getId(), drug);
+            }
+            // 保持热度顺序
+            for (Long id : hotIds) {
+                Drug drug = incomplete.get(id);
+                if (drug != null && picked.size() < limit) {
+                    picked.put(id, drug);
+                }
+            }
+        }
+
+        if (picked.size() < limit) {
+            for (Drug drug : drugMapper.selectIncomplete(retryBefore, limit)) {
+                if (picked.size() >= limit) {
+                    break;
+                }
+                picked.putIfAbsent(drug.getId(), drug);
+            }
+        }
+        return new ArrayList<>(picked.values());
+    }
+
+    private void enrichOne(Drug drug, AtomicInteger runFailures) {
+        try {
+            DrugApiService.DrugLookup lookup = drug.getDrugId() != null
+                    ? drugApiService.lookupDrugDetail(drug.getDrugId())
+                    : findBySearch(drug);
+            Drug detail = lookup.getDrug();
+            if (detail == null) {
+                if (lookup.isNotFound()) {
+                    drugMapper.markEnrichAttempted(drug.getId());
+                    notFound.increment();
+                } else {
+                    // 调用失败不记尝试时间，下一轮继续补全
+                    runFailures.incrementAndGet();
+                    failed.increment();
+                }
+                return;
+            }
+            if (drugService.applyEnrichment(drug, detail)) {
+                completed.increment();
+            } else {
+                partial.increment();
+            }
+        } catch (Exception e) {
+            runFailures.incrementAndGet();
+            failed.increment();
+            log.warn("补全药品信息失败: drugId={}", drug.getId(), e);
+        }
+    }
+
+    /**
+     * 没有药品业务ID时，按批准文号（没有则按名称）搜索，取批准文号或名称与厂家一致的结果；
+     * 搜索或详情调用失败时返回非“不存在”的空结果，由调用方按失败处理
+     */
+    private DrugApiService.DrugLookup findBySearch(Drug drug) {
+        String keyword = drug.getApprovalNumber() != null ? drug.getApprovalNumber() : drug.getName();
+        if (keyword == null || keyword.isEmpty()) {
+            return new DrugApiService.DrugLookup(null, true);
+        }
+        DrugApiService.SearchLookup search = drugApiService.lookupSearch(keyword, 1);
+        if (search.isFailed()) {
+            return new DrugApiService.DrugLookup(null, false);
+        }
+        for (Drug candidate : search.getDrugs()) {
+            boolean matched = drug.getApprovalNumber() != null
+                    ? drug.getApprovalNumber().equals(candidate.getApprovalNumber())
+                    : drug.getName().equals(candidate.getName())
+                    && Objects.equals(drug.getManufacturer(), candidate.getManufacturer());
+            if (!matched) {
+                continue;
+            }
+            // 搜索结果本身不完整但带有业务ID时，再查一次详情；详情明确不存在时退回搜索结果
+            if (!isComplete(candidate) && candidate.getDrugId() != null) {
+                DrugApiService.DrugLookup detail = drugApiService.lookupDrugDetail(candidate.getDrugId());
+                if (detail.getDrug() != null || !detail.isNotFound()) {
+                    return detail;
+                }
+            }
+            return new DrugApiService.DrugLookup(candidate, false);
+        }
+        return new DrugApiService.DrugLookup(null, true);
+    }
+
+    private static boolean hasText(String value, String placeholder) {
+        return value != null && !value.trim().isEmpty() && !value.trim().equals(placeholder);
+    }
+}
@@ -0,0 +1,239 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.health.common.DrugProjection;
+import com.health.config.DrugExportConfig;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 药品目录流式导出服务
+ * <p>
+ * 通过 MyBatis Cursor 逐行读取（fetchSize 为 Integer.MIN_VALUE，驱动按行流式接收结果集），
+ * 每行格式化后写入固定大小的缓冲区，缓冲区满即写入响应流，内存占用与目录大小无关。
+ * CSV 表头使用列名、JSONL 使用属性名，两种格式导出的文件都可以直接用批量导入接口导回。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugExportService {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private DrugExportConfig drugExportConfig;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    private Semaphore permits;
+
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV("text/csv", ".csv"),
+        JSONL("application/x-ndjson", ".jsonl");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String value) {
+            if (value != null) {
+                for (Format format : values()) {
+                    if (format.name().equalsIgnoreCase(value.trim())) {
+                        return format;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("不支持的导出格式: " + value + "，可选 csv、jsonl");
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, drugExportConfig.getMaxConcurrent()));
+    }
+
+    /**
+     * 申请导出名额，达到并发上限时返回false；成功后须调用 {@link #release()}
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 归还导出名额
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 按ID顺序把药品目录写入输出流，游标须在事务内遍历
+     *
+     * @param out        输出流（调用方负责压缩和关闭）
+     * @param format     导出格式
+     * @param projection 导出的字段
+     * @param status     状态过滤，null为全部
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, Format format, DrugProjection projection, Integer status) throws IOException {
+        long start = System.currentTimeMillis();
+        List<String> properties = List.copyOf(projection.properties());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                drugExportConfig.getBufferSize());
+        long rows = 0;
+        exports.increment();
+        try (Cursor<Drug> cursor = drugMapper.selectForExport(projection.columns(), status)) {
+            if (format == Format.CSV) {
+                writeCsvHeader(writer, properties);
+            }
+            for (Drug drug : cursor) {
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, drug, properties);
+                } else {
+                    writeJsonLine(writer, drug, properties);
+                }
+                rows++;
+            }
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            throw e;
+        } finally {
+            exportedRows.add(rows);
+        }
+        log.info("药品目录导出完成: format={}, fields={}, rows={}, costMs={}",
+                format, properties.size(), rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 获取导出统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("exports", exports.sum());
+        stats.put("exportedRows", exportedRows.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        stats.put("active", drugExportConfig.getMaxConcurrent() - permits.availablePermits());
+        return stats;
+    }
+
+    private void writeCsvHeader(Writer writer, List<String> properties) throws IOException {
+        // UTF-8 BOM，Excel 打开时可正确识别中文
+        writer.write('\uFEFF');
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(DrugProjection.columnOf(properties.get(i)));
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsvRow(Writer writer, Drug drug, List<String> properties) throws IOException {
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = DrugProjection.valueOf(drug, properties.get(i));
+            if (value != null) {
+                writeCsvField(writer, format(value));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private void writeJsonLine(Writer writer, Drug drug, List<String> properties) throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String property : properties) {
+            Object value = DrugProjection.valueOf(drug, property);
+            if (value != null) {
+                row.put(property, value instanceof LocalDateTime ? format(value) : value);
+            }
+        }
+        writer.write(JSON.toJSONString(row));
+        writer.write('\n');
+    }
+
+    private static String format(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return DATE_TIME_FORMATTER.format(dateTime);
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
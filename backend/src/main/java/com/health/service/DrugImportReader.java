@@ -0,0 +1,394 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.health.entity.Drug;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 药品导入文件的流式读取与校验
+ * <p>
+ * 支持带表头的CSV（RFC 4180，字段可加双引号，引号内可含逗号、换行）和每行一个JSON对象的JSONL。
+ * 逐条读取，内存占用与文件大小无关。字段名可以是 Drug 属性名（approvalNumber）或列名（approval_number），
+ * 不认识的字段忽略。每条记录按数据库列长度等规则校验，校验失败的记录带错误信息返回，由调用方计数跳过。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+final class DrugImportReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    /**
+     * 归一化字段名（小写、去下划线）到写入逻辑
+     */
+    private static final Map<String, FieldSetter> FIELDS = new HashMap<>();
+
+    static {
+        text("name", 200, Drug::setName);
+        text("barcode", 50, Drug::setBarcode);
+        text("approvalNumber", 100, Drug::setApprovalNumber);
+        text("manufacturer", 200, Drug::setManufacturer);
+        text("specification", 100, Drug::setSpecification);
+        text("dosageForm", 50, Drug::setDosageForm);
+        text("mainIngredient", 0, Drug::setMainIngredient);
+        text("indications", 0, Drug::setIndications);
+        text("contraindications", 0, Drug::setContraindications);
+        text("adverseReactions", 0, Drug::setAdverseReactions);
+        text("dosageUsage", 0, Drug::setDosageUsage);
+        text("precautions", 0, Drug::setPrecautions);
+        text("drugInteractions", 0, Drug::setDrugInteractions);
+        text("storageConditions", 200, Drug::setStorageConditions);
+        text("validityPeriod", 50, Drug::setValidityPeriod);
+        text("imageUrl", 500, Drug::setImageUrl);
+        text("drugId", 100, Drug::setDrugId);
+        FIELDS.put(normalize("price"), (drug, value) -> {
+            BigDecimal price;
+            try {
+                price = new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                return "{} 不是有效数字";
+            }
+            if (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0) {
+                return "{} 超出范围";
+            }
+            drug.setPrice(price);
+            return null;
+        });
+        FIELDS.put(normalize("status"), (drug, value) -> {
+            if ("0".equals(value) || "1".equals(value)) {
+                drug.setStatus(Integer.valueOf(value));
+                return null;
+            }
+            return "{} 只能是0或1";
+        });
+    }
+
+    /**
+     * 文件格式
+     */
+    enum Format {
+        CSV, JSONL;
+
+        static Format of(String value) {
+            if (value != null) {
+                for (Format format : values()) {
+                    if (format.name().equalsIgnoreCase(value.trim())) {
+                        return format;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("不支持的导入格式: " + value + "，可选 csv、jsonl");
+        }
+    }
+
+    private final Reader reader;
+    private final Format format;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * CSV表头各列对应的写入逻辑，未识别的列为null
+     */
+    private FieldSetter[] columns;
+    private String[] columnNames;
+
+    private long recordNumber;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    DrugImportReader(InputStream in, Format format) throws IOException {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.format = format;
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * 读取下一条记录，文件结束返回null
+     */
+    Record next() throws IOException {
+        while (true) {
+            if (format == Format.CSV) {
+                if (!readCsvRecord()) {
+                    return null;
+                }
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    // 空行
+                    continue;
+                }
+                recordNumber++;
+                return toRecord();
+            }
+            String line = readLine();
+            if (line == null) {
+                return null;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            recordNumber++;
+            return parseJsonLine(line);
+        }
+    }
+
+    /**
+     * 跳过指定条数的记录（续导时跳过断点之前的部分），不做校验
+     */
+    void skip(long records) throws IOException {
+        while (recordNumber < records) {
+            if (format == Format.CSV) {
+                if (!readCsvRecord()) {
+                    return;
+                }
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+            } else {
+                String line = readLine();
+                if (line == null) {
+                    return;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+            }
+            recordNumber++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        if (!readCsvRecord()) {
+            throw new IllegalArgumentException("CSV文件为空");
+        }
+        columns = new FieldSetter[fields.size()];
+        columnNames = new String[fields.size()];
+        boolean hasName = false;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim();
+            if (i == 0 && !name.isEmpty() && name.charAt(0) == '\uFEFF') {
+                name = name.substring(1);
+            }
+            columnNames[i] = name;
+            columns[i] = FIELDS.get(normalize(name));
+            hasName |= normalize(name).equals(normalize("name"));
+        }
+        if (!hasName) {
+            throw new IllegalArgumentException("CSV表头缺少 name 列");
+        }
+    }
+
+    private Record toRecord() {
+        Drug drug = new Drug();
+        for (int i = 0; i < fields.size() && i < columns.length; i++) {
+            FieldSetter setter = columns[i];
+            if (setter == null) {
+                continue;
+            }
+            String error = set(setter, drug, columnNames[i], fields.get(i));
+            if (error != null) {
+                return new Record(recordNumber, null, error);
+            }
+        }
+        return validate(drug);
+    }
+
+    private Record parseJsonLine(String line) {
+        JSONObject json;
+        try {
+            json = JSON.parseObject(line);
+        } catch (Exception e) {
+            return new Record(recordNumber, null, "不是有效的JSON");
+        }
+        if (json == null) {
+            return new Record(recordNumber, null, "不是有效的JSON");
+        }
+        Drug drug = new Drug();
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            FieldSetter setter = FIELDS.get(normalize(entry.getKey()));
+            if (setter == null || entry.getValue() == null) {
+                continue;
+            }
+            String error = set(setter, drug, entry.getKey(), entry.getValue().toString());
+            if (error != null) {
+                return new Record(recordNumber, null, error);
+            }
+        }
+        return validate(drug);
+    }
+
+    private String set(FieldSetter setter, Drug drug, String name, String raw) {
+        String value = raw.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        String error = setter.set(drug, value);
+        return error == null ? null : error.replace("{}", name);
+    }
+
+    private Record validate(Drug drug) {
+        if (drug.getName() == null) {
+            return new Record(recordNumber, null, "缺少药品名称");
+        }
+        if (drug.getBarcode() == null && drug.getApprovalNumber() == null) {
+            return new Record(recordNumber, null, "条形码和批准文号至少填写一项");
+        }
+        drug.setDataSource(Drug.DataSource.IMPORT.getCode());
+        drug.setComplete(DrugEnrichmentService.isComplete(drug));
+        return new Record(recordNumber, drug, null);
+    }
+
+    /**
+     * 读取一条CSV记录到 fields，文件结束返回false
+     */
+    private boolean readCsvRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                if (!any) {
+                    return false;
+                }
+                fields.add(field.toString());
+                return true;
+            }
+            any = true;
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return true;
+            } else {
+                field.append(ch);
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        field.setLength(0);
+        boolean any = false;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                return any ? field.toString() : null;
+            }
+            any = true;
+            if (c == '\n') {
+                return field.toString();
+            }
+            if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private static void text(String property, int maxLength, BiConsumer<Drug, String> setter) {
+        FIELDS.put(normalize(property), (drug, value) -> {
+            if (maxLength > 0 && value.length() > maxLength) {
+                return "{} 超过" + maxLength + "个字符";
+            }
+            setter.accept(drug, value);
+            return null;
+        });
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 写入一个字段，返回错误信息（{} 为字段名占位），成功返回null
+     */
+    @FunctionalInterface
+    private interface FieldSetter {
+
+        String set(Drug drug, String value);
+    }
+
+    /**
+     * 一条导入记录，校验失败时 drug 为null、error 为原因
+     */
+    static final class Record {
+
+        final long number;
+        final Drug drug;
+        final String error;
+
+        Record(long number, Drug drug, String error) {
+            this.number = number;
+            this.drug = drug;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,638 @@
+package com.health.service;
+
+import com.health.config.DrugImportConfig;
+import com.health.entity.Drug;
+import com.health.entity.DrugImportJob;
+import com.health.mapper.DrugImportJobMapper;
+import com.health.mapper.DrugMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 药品目录批量导入服务
+ * <p>
+ * 上传的文件先原样落盘，再由一个读取线程流式解析、校验，按批次去重后放入有界队列，
+ * 多个写库线程各自以一条多行 INSERT ... ON DUPLICATE KEY UPDATE 写入（按 uk_barcode、uk_approval_number 合并）。
+ * 队列满时读取线程阻塞，内存占用只与批次大小和队列容量有关，与文件大小无关。
+ * 断点为“之前所有批次都已提交”的最大记录序号，按间隔写入任务表；任务失败或服务重启后可从断点续导。
+ * 同一时间只运行一个导入任务。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugImportService {
+
+    @Autowired
+    private DrugImportConfig drugImportConfig;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    @Autowired
+    private DrugImportJobMapper drugImportJobMapper;
+
+    @Autowired
+    private DrugCacheService drugCacheService;
+
+    @Autowired
+    private DrugKeyFilter drugKeyFilter;
+
+    @Autowired
+    private DrugResponseCacheService drugResponseCacheService;
+
+    @Autowired
+    private DrugSearchIndex drugSearchIndex;
+
+    @Autowired
+    private DrugSuggestService drugSuggestService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private ThreadPoolTaskExecutor drugImportExecutor;
+
+    /**
+     * 是否有任务在上传或执行中
+     */
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    /**
+     * 当前执行中的任务进度
+     */
+    private volatile Progress current;
+
+    /**
+     * 服务启动时，把上次运行中被中断的任务标记为可续导
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterrupted() {
+        try {
+            int count = drugImportJobMapper.updateStatusByStatus(DrugImportJob.Status.RUNNING.name(),
+                    DrugImportJob.Status.INTERRUPTED.name());
+            if (count > 0) {
+                log.warn("发现{}个被中断的药品导入任务，可调用续导接口继续", count);
+            }
+        } catch (Exception e) {
+            log.error("标记中断的药品导入任务失败", e);
+        }
+    }
+
+    /**
+     * 接收导入文件并开始导入
+     *
+     * @param body     文件内容（请求体原始字节流）
+     * @param format   文件格式：csv、jsonl
+     * @param fileName 原始文件名，仅用于展示
+     * @return 新建的导入任务
+     * @throws IllegalArgumentException 格式不支持或文件为空
+     * @throws IllegalStateException    已有导入任务在执行
+     */
+    public DrugImportJob start(InputStream body, String format, String fileName) throws IOException {
+        DrugImportReader.Format importFormat = DrugImportReader.Format.of(format);
+        if (!busy.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有导入任务正在执行");
+        }
+        Path file = null;
+        try {
+            Path dir = Paths.get(drugImportConfig.getStoragePath());
+            Files.createDirectories(dir);
+            String suffix = "." + importFormat.name().toLowerCase(Locale.ROOT);
+            file = Files.createTempFile(dir, "drug-import-", suffix);
+            long bytes = Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            if (bytes == 0) {
+                throw new IllegalArgumentException("导入文件为空");
+            }
+
+            DrugImportJob job = new DrugImportJob();
+            job.setFileName(fileName != null ? fileName : file.getFileName().toString());
+            job.setFilePath(file.toAbsolutePath().toString());
+            job.setFormat(importFormat.name().toLowerCase(Locale.ROOT));
+            job.setStatus(DrugImportJob.Status.PENDING.name());
+            job.setTotalBytes(bytes);
+            drugImportJobMapper.insert(job);
+            job.setCheckpointRecord(0L);
+            job.setReadRecords(0L);
+            job.setUpsertedRecords(0L);
+            job.setInvalidRecords(0L);
+            job.setDuplicateRecords(0L);
+            launch(job);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            busy.set(false);
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 从断点续导失败或被中断的任务
+     *
+     * @throws IllegalArgumentException 任务不存在
+     * @throws IllegalStateException    任务状态不可续导、文件已不存在或已有任务在执行
+     */
+    public DrugImportJob resume(Long jobId) {
+        DrugImportJob job = drugImportJobMapper.selectById(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("导入任务不存在");
+        }
+        if (!DrugImportJob.Status.FAILED.name().equals(job.getStatus())
+                && !DrugImportJob.Status.INTERRUPTED.name().equals(job.getStatus())) {
+            throw new IllegalStateException("任务当前状态不能续导: " + job.getStatus());
+        }
+        if (job.getFilePath() == null || !Files.exists(Paths.get(job.getFilePath()))) {
+            throw new IllegalStateException("导入文件已不存在，无法续导");
+        }
+        if (!busy.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有导入任务正在执行");
+        }
+        try {
+            launch(job);
+            return job;
+        } catch (RuntimeException e) {
+            busy.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 查询任务进度，执行中的任务返回实时进度，任务不存在返回null
+     */
+    public Map<String, Object> getProgress(Long jobId) {
+        Progress progress = current;
+        if (progress != null && progress.job.getId().equals(jobId)) {
+            return progress.snapshot();
+        }
+        DrugImportJob job = drugImportJobMapper.selectById(jobId);
+        if (job == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("job", job);
+        return result;
+    }
+
+    private void launch(DrugImportJob job) {
+        long checkpoint = nullToZero(job.getCheckpointRecord());
+        job.setStatus(DrugImportJob.Status.RUNNING.name());
+        job.setCheckpointRecord(checkpoint);
+        job.setReadRecords(checkpoint);
+        job.setErrorMessage(null);
+        job.setStartedAt(LocalDateTime.now());
+        job.setFinishedAt(null);
+        drugImportJobMapper.updateProgress(job);
+
+        Progress progress = new Progress(job, drugImportConfig.getQueueCapacity());
+        current = progress;
+        drugImportExecutor.execute(() -> run(progress));
+    }
+
+    private void run(Progress progress) {
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        try {
+            for (int i = 0; i < drugImportConfig.getWriterThreads(); i++) {
+                writers.add(CompletableFuture.runAsync(() -> write(progress), drugImportExecutor));
+            }
+            read(progress);
+        } catch (Exception e) {
+            progress.fail(e);
+        } finally {
+            // 通知写库线程结束：每个线程一个结束标记
+            for (int i = 0; i < writers.size(); i++) {
+                putQuietly(progress.queue, Batch.END);
+            }
+            CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+        }
+
+        try {
+            finish(progress, System.currentTimeMillis() - start);
+        } finally {
+            current = null;
+            busy.set(false);
+        }
+    }
+
+    /**
+     * 读取线程：跳过断点之前的记录，逐条校验，攒满一批去重后放入队列
+     */
+    private void read(Progress progress) throws IOException, InterruptedException {
+        DrugImportJob job = progress.job;
+        DrugImportReader.Format format = DrugImportReader.Format.of(job.getFormat());
+        try (DrugImportReader reader = new DrugImportReader(
+                progress.counting(Files.newInputStream(Paths.get(job.getFilePath()))), format)) {
+            long checkpoint = job.getCheckpointRecord();
+            reader.skip(checkpoint);
+            progress.read.set(checkpoint);
+
+            BatchBuilder builder = new BatchBuilder(drugImportConfig.getBatchSize());
+            long sequence = 0;
+            DrugImportReader.Record record;
+            while (!progress.failed.get() && (record = reader.next()) != null) {
+                progress.read.set(record.number);
+                if (record.drug == null) {
+                    builder.invalid++;
+                    progress.invalid.increment();
+                    progress.sampleError(record.number, record.error);
+                    continue;
+                }
+                progress.duplicate.add(builder.add(record.drug));
+                if (builder.size() >= drugImportConfig.getBatchSize()) {
+                    progress.queue.put(builder.build(sequence++, record.number));
+                    builder = new BatchBuilder(drugImportConfig.getBatchSize());
+                }
+            }
+            if (!progress.failed.get()) {
+                // 最后一批即使没有有效记录也要提交，用于推进断点和计数
+                progress.queue.put(builder.build(sequence, progress.read.get()));
+            }
+        }
+    }
+
+    /**
+     * 写库线程：逐批写入，推进断点，失效缓存
+     */
+    private void write(Progress progress) {
+        while (true) {
+            Batch batch;
+            try {
+                batch = progress.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                progress.fail(e);
+                return;
+            }
+            if (batch == Batch.END) {
+                return;
+            }
+            if (progress.failed.get()) {
+                // 已失败，只消费队列让读取线程退出
+                continue;
+            }
+            try {
+                if (!batch.drugs.isEmpty()) {
+                    upsert(batch.drugs);
+                    progress.upserted.add(batch.drugs.size());
+                    for (Drug drug : batch.drugs) {
+                        drugKeyFilter.put(drug);
+                    }
+                    drugCacheService.evictAll(batch.barcodes());
+                }
+                progress.complete(batch);
+            } catch (Exception e) {
+                progress.fail(e);
+            }
+        }
+    }
+
+    private void upsert(List<Drug> drugs) {
+        // 带状态的记录才更新已有药品的状态，不带状态的记录保留原状态（管理员下架的药品不被重新上架）
+        List<Drug> withStatus = new ArrayList<>();
+        List<Drug> withoutStatus = new ArrayList<>();
+        for (Drug drug : drugs) {
+            if (drug.getStatus() != null) {
+                withStatus.add(drug);
+            } else {
+                withoutStatus.add(drug);
+            }
+        }
+        upsert(withStatus, true);
+        upsert(withoutStatus, false);
+    }
+
+    private void upsert(List<Drug> drugs, boolean updateStatus) {
+        if (drugs.isEmpty()) {
+            return;
+        }
+        int attempt = 0;
+        while (true) {
+            try {
+                drugMapper.batchUpsert(drugs, updateStatus);
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                // 并行批次在唯一索引上相互等待导致的死锁、锁等待超时，整批重试
+                if (++attempt > drugImportConfig.getMaxRetries()) {
+                    throw e;
+                }
+                log.warn("药品导入批次锁冲突，第{}次重试", attempt);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(50L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void finish(Progress progress, long costMs) {
+        DrugImportJob job = progress.job;
+        if (progress.failed.get()) {
+            job.setStatus(DrugImportJob.Status.FAILED.name());
+            job.setErrorMessage(progress.error);
+        } else {
+            job.setStatus(DrugImportJob.Status.COMPLETED.name());
+        }
+        job.setFinishedAt(LocalDateTime.now());
+        progress.persist();
+
+        if (progress.upserted.sum() > 0) {
+            // 导入可能修改了任意药品，按ID缓存的响应无法逐条失效，整体清空后重建索引和统计
+            drugResponseCacheService.clear();
+            try {
+                drugSearchIndex.build();
+                drugSuggestService.build();
+                statisticsService.reconcile();
+            } catch (Exception e) {
+                log.error("药品导入后重建索引失败: jobId={}", job.getId(), e);
+            }
+        }
+
+        if (!progress.failed.get()) {
+            try {
+                Files.deleteIfExists(Paths.get(job.getFilePath()));
+            } catch (IOException e) {
+                log.warn("删除导入暂存文件失败: {}", job.getFilePath(), e);
+            }
+        }
+        log.info("药品导入任务结束: jobId={}, status={}, read={}, upserted={}, invalid={}, duplicate={}, costMs={}",
+                job.getId(), job.getStatus(), job.getReadRecords(), progress.upserted.sum(),
+                job.getInvalidRecords(), job.getDuplicateRecords(), costMs);
+    }
+
+    private static void putQuietly(BlockingQueue<Batch> queue, Batch batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * 一个写库批次
+     *
+     * @param sequence   批次序号，断点按序号连续推进
+     * @param lastRecord 本批次覆盖到的最后一条记录序号（含之前校验失败的记录）
+     * @param invalid    本批次覆盖范围内校验失败的记录数
+     * @param duplicate  本批次内被后出现的记录覆盖的记录数
+     */
+    private record Batch(long sequence, long lastRecord, List<Drug> drugs, int invalid, int duplicate) {
+
+        static final Batch END = new Batch(-1, -1, List.of(), 0, 0);
+
+        List<String> barcodes() {
+            List<String> barcodes = new ArrayList<>(drugs.size());
+            for (Drug drug : drugs) {
+                if (drug.getBarcode() != null) {
+                    barcodes.add(drug.getBarcode());
+                }
+            }
+            return barcodes;
+        }
+    }
+
+    /**
+     * 批次内按条形码、批准文号去重，后出现的记录覆盖先出现的
+     */
+    private static final class BatchBuilder {
+
+        private final List<Drug> drugs;
+        private final Map<String, Integer> slots;
+        private int invalid;
+        private int duplicate;
+
+        BatchBuilder(int capacity) {
+            this.drugs = new ArrayList<>(capacity);
+            this.slots = new HashMap<>(capacity * 4);
+        }
+
+        /**
+         * 加入一条记录，返回因此被覆盖的已有记录数
+         */
+        int add(Drug drug) {
+            Integer byBarcode = drug.getBarcode() != null ? slots.get("B" + drug.getBarcode()) : null;
+            Integer byApproval = drug.getApprovalNumber() != null ? slots.get("A" + drug.getApprovalNumber()) : null;
+            Integer slot = byBarcode != null ? byBarcode : byApproval;
+            int replaced = 0;
+            if (slot == null) {
+                slot = drugs.size();
+                drugs.add(drug);
+            } else {
+                drugs.set(slot, drug);
+                replaced++;
+                if (byBarcode != null && byApproval != null && !byBarcode.equals(byApproval)) {
+                    // 条形码和批准文号分别命中两条不同的记录，两条都被覆盖
+                    drugs.set(byApproval, null);
+                    replaced++;
+                }
+            }
+            duplicate += replaced;
+            if (drug.getBarcode() != null) {
+                slots.put("B" + drug.getBarcode(), slot);
+            }
+            if (drug.getApprovalNumber() != null) {
+                slots.put("A" + drug.getApprovalNumber(), slot);
+            }
+            return replaced;
+        }
+
+        int size() {
+            return drugs.size();
+        }
+
+        Batch build(long sequence, long lastRecord) {
+            List<Drug> result = new ArrayList<>(drugs.size());
+            for (Drug drug : drugs) {
+                if (drug != null) {
+                    result.add(drug);
+                }
+            }
+            // 按唯一键排序，让并行批次以相同顺序加锁，减少死锁
+            result.sort(Comparator.comparing(Drug::getBarcode, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Drug::getApprovalNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+            return new Batch(sequence, lastRecord, result, invalid, duplicate);
+        }
+    }
+
+    /**
+     * 执行中任务的进度与断点
+     */
+    private final class Progress {
+
+        private final DrugImportJob job;
+        private final BlockingQueue<Batch> queue;
+        private final long startNanos = System.nanoTime();
+        private final long baseUpserted;
+        private final long baseInvalid;
+        private final long baseDuplicate;
+
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final LongAdder upserted = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder duplicate = new LongAdder();
+        private final ConcurrentLinkedQueue<String> errorSamples = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger errorSampleCount = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean(false);
+        private volatile String error;
+
+        /**
+         * 断点推进：已提交但前面还有未提交批次的，先按序号暂存
+         */
+        private final ReentrantLock checkpointLock = new ReentrantLock();
+        private final Map<Long, Batch> pending = new HashMap<>();
+        private long nextSequence;
+        private long lastPersistNanos = System.nanoTime();
+
+        Progress(DrugImportJob job, int queueCapacity) {
+            this.job = job;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            this.baseUpserted = nullToZero(job.getUpsertedRecords());
+            this.baseInvalid = nullToZero(job.getInvalidRecords());
+            this.baseDuplicate = nullToZero(job.getDuplicateRecords());
+        }
+
+        InputStream counting(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytesRead.incrementAndGet();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = super.read(buffer, offset, length);
+                    if (n > 0) {
+                        bytesRead.addAndGet(n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        void sampleError(long recordNumber, String message) {
+            if (errorSampleCount.getAndIncrement() < drugImportConfig.getMaxErrorSamples()) {
+                errorSamples.add("第" + recordNumber + "条: " + message);
+            }
+        }
+
+        void fail(Exception e) {
+            if (failed.compareAndSet(false, true)) {
+                error = Objects.toString(e.getMessage(), e.getClass().getSimpleName());
+                // 写库线程失败后继续消费队列（不写库），读取线程不会阻塞在满队列上
+                log.error("药品导入任务失败: jobId={}", job.getId(), e);
+            }
+        }
+
+        /**
+         * 批次已提交：按序号连续推进断点，按间隔写入任务表
+         */
+        void complete(Batch batch) {
+            checkpointLock.lock();
+            try {
+                pending.put(batch.sequence(), batch);
+                Batch next;
+                boolean advanced = false;
+                while ((next = pending.remove(nextSequence)) != null) {
+                    job.setCheckpointRecord(next.lastRecord());
+                    job.setUpsertedRecords(nullToZero(job.getUpsertedRecords()) + next.drugs().size());
+                    job.setInvalidRecords(nullToZero(job.getInvalidRecords()) + next.invalid());
+                    job.setDuplicateRecords(nullToZero(job.getDuplicateRecords()) + next.duplicate());
+                    nextSequence++;
+                    advanced = true;
+                }
+                long intervalNanos = TimeUnit.MILLISECONDS.toNanos(drugImportConfig.getCheckpointIntervalMs());
+                if (advanced && System.nanoTime() - lastPersistNanos >= intervalNanos) {
+                    persistLocked();
+                }
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+
+        void persist() {
+            checkpointLock.lock();
+            try {
+                persistLocked();
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+
+        private void persistLocked() {
+            // 任务表中的计数只包含断点之前的记录，续导时不会重复统计
+            job.setReadRecords(job.getCheckpointRecord());
+            try {
+                drugImportJobMapper.updateProgress(job);
+            } catch (Exception e) {
+                log.warn("保存药品导入断点失败: jobId={}", job.getId(), e);
+            }
+            lastPersistNanos = System.nanoTime();
+        }
+
+        Map<String, Object> snapshot() {
+            long elapsedNanos = Math.max(1L, System.nanoTime() - startNanos);
+            long upsertedNow = upserted.sum();
+            long total = nullToZero(job.getTotalBytes());
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("job", job);
+            result.put("bytesRead", bytesRead.get());
+            result.put("percent", total == 0 ? 0D : Math.min(100D, bytesRead.get() * 100D / total));
+            result.put("readRecords", read.get());
+            result.put("upsertedRecords", baseUpserted + upsertedNow);
+            result.put("invalidRecords", baseInvalid + invalid.sum());
+            result.put("duplicateRecords", baseDuplicate + duplicate.sum());
+            result.put("rowsPerSecond", upsertedNow * 1_000_000_000D / elapsedNanos);
+            result.put("queueSize", queue.size());
+            result.put("queueCapacity", queue.size() + queue.remainingCapacity());
+            result.put("errorSamples", new ArrayList<>(errorSamples));
+            result.put("failed", failed.get());
+            return result;
+        }
+    }
+}
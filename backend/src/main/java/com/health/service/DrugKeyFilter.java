@@ -0,0 +1,228 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.util.Fnv;
+import com.health.config.DrugKeyFilterConfig;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已存在药品条形码、批准文号的布隆过滤器
+ * <p>
+ * 保存药品前先查过滤器：判定“一定不存在”时省去存在性查询，直接写库；判定“可能存在”时再查数据库。
+ * 启动时按数据库全量构建，每次写入后追加。删除药品不从过滤器移除，只会多一次查询，不影响正确性；
+ * 数据库唯一索引始终是最终保证。构建完成前一律视为“可能存在”。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugKeyFilter {
+
+    private static final String BARCODE_PREFIX = "B:";
+    private static final String APPROVAL_NUMBER_PREFIX = "A:";
+
+    @Autowired
+    private DrugKeyFilterConfig drugKeyFilterConfig;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    private volatile Bits current;
+
+    /**
+     * 重建期间的新过滤器，重建期间的写入同时追加到新旧两个过滤器
+     */
+    private volatile Bits building;
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private final LongAdder probesSkipped = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * 应用启动完成后从数据库全量构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!drugKeyFilterConfig.isEnabled() || !buildLock.tryLock()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Long total = drugMapper.countTotalDrugs();
+            long expected = Math.max(drugKeyFilterConfig.getExpectedInsertions(), total == null ? 0L : total * 4);
+            Bits bits = new Bits(expected, drugKeyFilterConfig.getFalsePositiveRate());
+            building = bits;
+            AtomicLong keys = new AtomicLong();
+            drugMapper.selectAllKeys(context -> {
+                Drug drug = context.getResultObject();
+                keys.addAndGet(add(bits, drug.getBarcode(), drug.getApprovalNumber()));
+            });
+            current = bits;
+            log.info("药品键布隆过滤器构建完成: keys={}, bits={}, hashes={}, cost={}ms",
+                    keys.get(), bits.bitSize, bits.hashes, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("构建药品键布隆过滤器失败，保存药品将始终查询数据库", e);
+        } finally {
+            building = null;
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * 条形码或批准文号是否可能已存在，返回false时一定不存在
+     */
+    public boolean mightContain(String barcode, String approvalNumber) {
+        Bits bits = current;
+        if (bits == null || !drugKeyFilterConfig.isEnabled()) {
+            probes.increment();
+            return true;
+        }
+        boolean maybe = (barcode != null && bits.mightContain(BARCODE_PREFIX + barcode))
+                || (approvalNumber != null && bits.mightContain(APPROVAL_NUMBER_PREFIX + approvalNumber));
+        if (maybe) {
+            probes.increment();
+        } else {
+            probesSkipped.increment();
+        }
+        return maybe;
+    }
+
+    /**
+     * 记录一次误判：过滤器判定可能存在，查询后实际不存在
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * 写入药品后追加其条形码和批准文号
+     */
+    public void put(Drug drug) {
+        if (drug == null) {
+            return;
+        }
+        Bits bits = current;
+        if (bits != null) {
+            add(bits, drug.getBarcode(), drug.getApprovalNumber());
+        }
+        Bits next = building;
+        if (next != null) {
+            add(next, drug.getBarcode(), drug.getApprovalNumber());
+        }
+    }
+
+    /**
+     * 获取过滤器统计
+     */
+    public Map<String, Object> getStats() {
+        Bits bits = current;
+        long skipped = probesSkipped.sum();
+        long probed = probes.sum();
+        long falsePositive = falsePositives.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", drugKeyFilterConfig.isEnabled());
+        stats.put("ready", bits != null);
+        stats.put("probesSkipped", skipped);
+        stats.put("probes", probed);
+        stats.put("falsePositives", falsePositive);
+        stats.put("skipRate", skipped + probed == 0 ? 0D : (double) skipped / (skipped + probed));
+        if (bits != null) {
+            stats.put("bitSize", bits.bitSize);
+            stats.put("hashes", bits.hashes);
+            stats.put("fillRatio", bits.fillRatio());
+        }
+        return stats;
+    }
+
+    private static int add(Bits bits, String barcode, String approvalNumber) {
+        int added = 0;
+        if (barcode != null) {
+            bits.put(BARCODE_PREFIX + barcode);
+            added++;
+        }
+        if (approvalNumber != null) {
+            bits.put(APPROVAL_NUMBER_PREFIX + approvalNumber);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * 位数组，按 Kirsch-Mitzenmacher 双哈希生成 k 个位置，并发追加无锁
+     */
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitSize;
+        private final int hashes;
+
+        Bits(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1L, expectedInsertions);
+            double p = Math.min(Math.max(falsePositiveRate, 1e-6), 0.5);
+            long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8L, (bits + 63) >>> 6);
+            this.words = new AtomicLongArray(words);
+            this.bitSize = (long) words << 6;
+            this.hashes = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+        }
+
+        void put(String key) {
+            long h1 = Fnv.hashCode64(key);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashes; i++) {
+                long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = Fnv.hashCode64(key);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashes; i++) {
+                long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double fillRatio() {
+            long set = 0;
+            for (int i = 0; i < words.length(); i++) {
+                set += Long.bitCount(words.get(i));
+            }
+            return (double) set / bitSize;
+        }
+
+        /**
+         * SplitMix64 终结函数，由第一个哈希派生相互独立的第二个哈希
+         */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return (z ^ (z >>> 31)) | 1L;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.health.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.common.Result;
+import com.health.config.DrugResponseCacheConfig;
+import com.health.entity.Drug;
+import com.health.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 药品详情响应字节缓存
+ * <p>
+ * 热门药品的 Result&lt;Drug&gt; 响应序列化一次后缓存为字节（较大的同时预先gzip），之后直接写出，
+ * 不再经过Jackson序列化和压缩。缓存按资源键存放，并记录生成时的实体版本（即ETag），
+ * 实体版本变化后自动视为未命中；药品写操作还会主动失效。
+ * 缓存的是完整响应，其中的timestamp为生成时间，滞后不超过过期时间。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugResponseCacheService {
+
+    private static final String GZIP = "gzip";
+
+    @Autowired
+    private DrugResponseCacheConfig drugResponseCacheConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LRUCache<String, Payload> payloads;
+
+    /**
+     * 尚未达到准入次数的资源访问计数
+     */
+    private LRUCache<String, AtomicInteger> candidates;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder gzipWrites = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        long ttl = TimeUnit.SECONDS.toMillis(drugResponseCacheConfig.getTtlSeconds());
+        payloads = CacheUtil.newLRUCache(drugResponseCacheConfig.getMaxSize(), ttl);
+        candidates = CacheUtil.newLRUCache(drugResponseCacheConfig.getMaxSize() * 4, ttl);
+    }
+
+    /**
+     * 把药品成功响应写到输出流，优先使用缓存的字节
+     *
+     * @param key     资源键，为null时不缓存（如尚未落库的API来源数据）
+     * @param version 实体版本（ETag）
+     */
+    public void write(String key, String version, Drug drug, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Payload payload = lookup(key, version);
+        if (payload == null) {
+            misses.increment();
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(drug));
+            if (key != null && drugResponseCacheConfig.isEnabled() && admit(key)) {
+                payload = new Payload(version, json, gzip(json));
+                payloads.put(key, payload);
+                admissions.increment();
+            } else {
+                payload = new Payload(version, json, null);
+            }
+        } else {
+            hits.increment();
+        }
+
+        byte[] body = payload.json;
+        if (drugResponseCacheConfig.isGzipEnabled()) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (payload.gzip != null && acceptsGzip(request)) {
+            body = payload.gzip;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            gzipWrites.increment();
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    /**
+     * 失效资源的缓存响应
+     * <p>
+     * 在事务中调用时，除立即失效外还会在事务提交后再失效一次，避免提交前的并发读取把旧数据写回缓存。
+     */
+    public void evict(String... keys) {
+        doEvict(keys);
+        TransactionUtils.afterCommit(() -> doEvict(keys));
+    }
+
+    /**
+     * 清空全部缓存响应（批量导入等无法逐条失效的大批量写入后调用）
+     */
+    public void clear() {
+        payloads.clear();
+        candidates.clear();
+    }
+
+    /**
+     * 获取缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        long total = hit + miss;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", drugResponseCacheConfig.isEnabled());
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("admissions", admissions.sum());
+        stats.put("gzipWrites", gzipWrites.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("size", payloads.size());
+        stats.put("hitRate", total == 0 ? 0D : (double) hit / total);
+        return stats;
+    }
+
+    private Payload lookup(String key, String version) {
+        if (key == null || !drugResponseCacheConfig.isEnabled()) {
+            return null;
+        }
+        Payload payload = payloads.get(key, false);
+        if (payload == null || !payload.version.equals(version)) {
+            return null;
+        }
+        return payload;
+    }
+
+    private boolean admit(String key) {
+        int threshold = drugResponseCacheConfig.getAdmitAfterHits();
+        if (threshold <= 1) {
+            return true;
+        }
+        AtomicInteger count = candidates.get(key, false);
+        if (count == null) {
+            candidates.put(key, new AtomicInteger(1));
+            return false;
+        }
+        if (count.incrementAndGet() < threshold) {
+            return false;
+        }
+        candidates.remove(key);
+        return true;
+    }
+
+    private byte[] gzip(byte[] json) {
+        if (!drugResponseCacheConfig.isGzipEnabled() || json.length < drugResponseCacheConfig.getGzipMinBytes()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            log.warn("压缩药品响应失败", e);
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].replace(" ", "").equalsIgnoreCase("q=0");
+            }
+        }
+        return false;
+    }
+
+    private void doEvict(String... keys) {
+        for (String key : keys) {
+            if (key != null) {
+                payloads.remove(key);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 缓存的响应字节
+     */
+    private static class Payload {
+
+        private final String version;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Payload(String version, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.health.config.DrugSearchCacheConfig;
+import com.health.entity.Drug;
+import com.health.entity.DrugSearchCache;
+import com.health.mapper.DrugSearchCacheMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 药品搜索结果缓存服务（基于 drug_search_cache 表）
+ * <p>
+ * 命中缓存时直接返回；缓存已过新鲜期但仍在可用期内时先返回旧数据，再在后台异步刷新，
+ * 同一关键词的重复搜索不会再等待第三方API。命中次数在内存中累计后批量写库，
+ * 过期缓存由定时任务清理。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugSearchCacheService {
+
+    private static final String API_SOURCE = "yaozhi_api";
+
+    @Autowired
+    private DrugSearchCacheConfig searchCacheConfig;
+
+    @Autowired
+    private DrugSearchCacheMapper drugSearchCacheMapper;
+
+    @Autowired
+    private ThreadPoolTaskExecutor drugApiExecutor;
+
+    /**
+     * 待写库的命中次数，缓存ID到次数
+     */
+    private final Map<Long, AtomicLong> pendingHits = new ConcurrentHashMap<>();
+
+    /**
+     * 正在后台刷新的缓存键
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder freshHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * 按药品名称搜索，优先读缓存，未命中时调用loader并写入缓存
+     *
+     * @param loader 实际调用第三方API的加载逻辑
+     */
+    public List<Drug> search(String keyword, int page, Supplier<List<Drug>> loader) {
+        String key = normalize(keyword);
+        Integer searchType = DrugSearchCache.SearchType.DRUG_NAME.getCode();
+
+        DrugSearchCache cache = null;
+        try {
+            cache = drugSearchCacheMapper.selectByKey(key, searchType, page);
+        } catch (Exception e) {
+            log.warn("读取药品搜索缓存失败: keyword={}", key, e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (cache != null && cache.getExpireTime() != null
+                && cache.getExpireTime().isBefore(now.minusSeconds(searchCacheConfig.getStaleTtlSeconds()))) {
+            // 超过可用期但尚未被清理，按未命中处理
+            cache = null;
+        }
+
+        if (cache != null) {
+            recordHit(cache.getId());
+            if (cache.getExpireTime() != null && cache.getExpireTime().isBefore(now)) {
+                staleHits.increment();
+                refreshAsync(key, searchType, page, loader);
+            } else {
+                freshHits.increment();
+            }
+            return JSON.parseArray(cache.getCacheData(), Drug.class);
+        }
+
+        misses.increment();
+        List<Drug> drugs = loader.get();
+        store(key, searchType, page, drugs);
+        return drugs;
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("freshHits", freshHits.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshing", refreshing.size());
+        stats.put("pendingHitRows", pendingHits.size());
+        return stats;
+    }
+
+    /**
+     * 定时批量写入命中次数
+     */
+    @Scheduled(fixedDelayString = "${health.cache.drug-search.hit-flush-interval-ms:10000}")
+    public void flushHits() {
+        Map<Long, Long> batch = new HashMap<>();
+        for (Map.Entry<Long, AtomicLong> entry : pendingHits.entrySet()) {
+            long count = entry.getValue().getAndSet(0);
+            if (count > 0) {
+                batch.put(entry.getKey(), count);
+            } else {
+                pendingHits.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            drugSearchCacheMapper.batchIncreaseHitCount(batch, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("批量更新搜索缓存命中次数失败: rows={}", batch.size(), e);
+        }
+    }
+
+    /**
+     * 定时清理超过可用期的缓存
+     */
+    @Scheduled(fixedDelayString = "${health.cache.drug-search.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minusSeconds(searchCacheConfig.getStaleTtlSeconds());
+        int batchSize = searchCacheConfig.getCleanupBatchSize();
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                // 分批删除，避免长时间锁表
+                deleted = drugSearchCacheMapper.deleteExpiredBefore(threshold, batchSize);
+                total += deleted;
+            } while (deleted >= batchSize);
+        } catch (Exception e) {
+            log.warn("清理过期药品搜索缓存失败", e);
+        }
+        if (total > 0) {
+            log.info("清理过期药品搜索缓存: deleted={}", total);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushHits();
+    }
+
+    private void recordHit(Long id) {
+        if (id != null) {
+            pendingHits.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * 后台刷新缓存，同一键同时只刷新一次；线程池队列已满时放弃本次刷新，不占用请求线程
+     */
+    private void refreshAsync(String key, Integer searchType, int page, Supplier<List<Drug>> loader) {
+        String refreshKey = searchType + "#" + page + "#" + key;
+        if (!refreshing.add(refreshKey)) {
+            return;
+        }
+        if (drugApiExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+            refreshing.remove(refreshKey);
+            return;
+        }
+        drugApiExecutor.execute(() -> {
+            try {
+                refreshes.increment();
+                store(key, searchType, page, loader.get());
+            } catch (Exception e) {
+                log.warn("后台刷新药品搜索缓存失败: keyword={}", key, e);
+            } finally {
+                refreshing.remove(refreshKey);
+            }
+        });
+    }
+
+    private void store(String key, Integer searchType, int page, List<Drug> drugs) {
+        // 第三方API出错时也返回空列表，空结果不写缓存，避免覆盖仍可用的旧数据
+        if (drugs == null || drugs.isEmpty()) {
+            return;
+        }
+        DrugSearchCache cache = new DrugSearchCache();
+        cache.setSearchKeyword(key);
+        cache.setSearchType(searchType);
+        cache.setPageNo(page);
+        cache.setApiSource(API_SOURCE);
+        cache.setCacheData(JSON.toJSONString(new ArrayList<>(drugs)));
+        cache.setResultCount(drugs.size());
+        cache.setExpireTime(LocalDateTime.now().plusSeconds(searchCacheConfig.getFreshTtlSeconds()));
+        try {
+            drugSearchCacheMapper.upsert(cache);
+        } catch (Exception e) {
+            log.warn("写入药品搜索缓存失败: keyword={}", key, e);
+        }
+    }
+
+    /**
+     * 关键词归一化：去除首尾空白、合并连续空白、转小写
+     */
+    private String normalize(String keyword) {
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
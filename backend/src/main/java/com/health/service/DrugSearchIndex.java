@@ -0,0 +1,551 @@
+package com.health.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import com.health.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 药品内存倒排索引
+ * <p>
+ * 对药品名称、主要成分、批准文号（关键词）和生产厂家（厂家条件）分别做中文友好的二元分词
+ * （单字查询走单字索引），倒排表使用有序int数组存储。匹配字段与数据库 searchDrugs 的条件一致，
+ * 关键词不匹配生产厂家，保证索引可用与否不影响结果。查询时先求倒排表交集得到候选，
+ * 再对候选做子串校验并按字段权重打分排序，替代数据库的 LIKE '%keyword%' 全表扫描。
+ * <p>
+ * 排好序的命中结果按查询条件和索引版本缓存，同一查询的分页和总数统计共用一次匹配，索引有写入即失效。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugSearchIndex {
+
+    private static final int WEIGHT_NAME = 8;
+    private static final int WEIGHT_APPROVAL_NUMBER = 6;
+    private static final int WEIGHT_MAIN_INGREDIENT = 4;
+
+    /**
+     * 缓存命中结果的查询条数
+     */
+    private static final int MATCH_CACHE_SIZE = 64;
+
+    /**
+     * 相关度降序，相同相关度按ID降序（新药品优先）
+     */
+    private static final Comparator<Hit> HIT_ORDER = Comparator
+            .comparingLong((Hit h) -> -h.score)
+            .thenComparingLong(h -> -h.id);
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 关键词倒排表：名称、主要成分、批准文号
+     */
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * 生产厂家倒排表
+     */
+    private final Map<String, PostingList> manufacturerPostings = new HashMap<>();
+
+    private final Map<Integer, IndexedDrug> documents = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    /**
+     * 索引版本，每次写入加一，只在持有锁时读写
+     */
+    private long version;
+
+    private final LRUCache<String, Matched> matchCache = CacheUtil.newLRUCache(MATCH_CACHE_SIZE);
+
+    /**
+     * 应用启动完成后从数据库全量构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            manufacturerPostings.clear();
+            documents.clear();
+            version++;
+            for (Drug drug : drugMapper.selectAllForIndex()) {
+                addDocument(drug);
+            }
+            ready = true;
+        } catch (Exception e) {
+            log.error("构建药品搜索索引失败，搜索将回退到数据库", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("药品搜索索引构建完成: drugs={}, terms={}, cost={}ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 索引是否可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或更新药品索引，在事务中调用时于提交后生效
+     */
+    public void put(Drug drug) {
+        if (drug == null || drug.getId() == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(toDocId(drug.getId()));
+                addDocument(drug);
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 删除药品索引，在事务中调用时于提交后生效
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(toDocId(id));
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 更新药品状态索引，在事务中调用时于提交后生效
+     */
+    public void updateStatus(Long id, Integer status) {
+        if (id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                IndexedDrug doc = documents.get(toDocId(id));
+                if (doc != null) {
+                    doc.status = status;
+                    version++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 搜索药品，返回按相关度排序的药品ID
+     */
+    public List<Long> search(String keyword, String manufacturer, Integer status, int offset, int limit) {
+        List<Hit> hits = match(keyword, manufacturer, status);
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < hits.size() && i < offset + limit; i++) {
+            ids.add(hits.get(i).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 游标方式搜索药品，返回排在 (afterScore, afterId) 之后的命中结果，游标为空时从头开始
+     */
+    public List<Hit> searchAfter(String keyword, String manufacturer, Integer status,
+                                 Long afterScore, Long afterId, int limit) {
+        List<Hit> hits = match(keyword, manufacturer, status);
+        int start = 0;
+        if (afterScore != null && afterId != null) {
+            Hit after = new Hit(afterScore, afterId);
+            // 命中结果已按排序键有序，二分定位游标之后的第一条
+            int pos = Collections.binarySearch(hits, after, HIT_ORDER);
+            start = pos >= 0 ? pos + 1 : -pos - 1;
+        }
+        return new ArrayList<>(hits.subList(Math.min(start, hits.size()), Math.min(hits.size(), start + limit)));
+    }
+
+    /**
+     * 统计匹配的药品数
+     */
+    public long count(String keyword, String manufacturer, Integer status) {
+        return match(keyword, manufacturer, status).size();
+    }
+
+    /**
+     * 按相关度排好序的全部命中结果（只读），同一查询在索引未变化时直接返回缓存
+     */
+    private List<Hit> match(String keyword, String manufacturer, Integer status) {
+        List<String> terms = splitTerms(keyword);
+        List<String> manufacturerTerms = splitTerms(manufacturer);
+
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String term : terms) {
+            tokens.addAll(tokenizeQuery(term));
+        }
+        Set<String> manufacturerTokens = new LinkedHashSet<>();
+        for (String term : manufacturerTerms) {
+            manufacturerTokens.addAll(tokenizeQuery(term));
+        }
+        if (tokens.isEmpty() && manufacturerTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String key = status + "|" + String.join(" ", terms) + "|" + String.join(" ", manufacturerTerms);
+
+        lock.readLock().lock();
+        try {
+            Matched cached = matchCache.get(key, false);
+            if (cached != null && cached.version == version) {
+                return cached.hits;
+            }
+            List<PostingList> lists = new ArrayList<>(tokens.size() + manufacturerTokens.size());
+            if (!collect(postings, tokens, lists) || !collect(manufacturerPostings, manufacturerTokens, lists)) {
+                return Collections.emptyList();
+            }
+            int[] candidates = PostingList.intersect(lists);
+
+            List<Hit> hits = new ArrayList<>();
+            for (int docId : candidates) {
+                IndexedDrug doc = documents.get(docId);
+                if (doc == null || (status != null && !status.equals(doc.status))) {
+                    continue;
+                }
+                int score = score(doc, terms, manufacturerTerms);
+                if (score > 0) {
+                    hits.add(new Hit(score, docId));
+                }
+            }
+            hits.sort(HIT_ORDER);
+            List<Hit> result = Collections.unmodifiableList(hits);
+            matchCache.put(key, new Matched(version, result));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 取出各词元的倒排表，任一词元没有倒排表时返回false（结果必然为空）
+     */
+    private static boolean collect(Map<String, PostingList> index, Set<String> tokens, List<PostingList> lists) {
+        for (String token : tokens) {
+            PostingList list = index.get(token);
+            if (list == null) {
+                return false;
+            }
+            lists.add(list);
+        }
+        return true;
+    }
+
+    /**
+     * 子串校验并打分，任一关键词在所有字段都不包含时返回0
+     */
+    private int score(IndexedDrug doc, List<String> terms, List<String> manufacturerTerms) {
+        for (String term : manufacturerTerms) {
+            if (!doc.manufacturer.contains(term)) {
+                return 0;
+            }
+        }
+        int total = manufacturerTerms.isEmpty() ? 0 : 1;
+        for (String term : terms) {
+            int best = 0;
+            if (doc.name.contains(term)) {
+                best = WEIGHT_NAME;
+                if (doc.name.equals(term)) {
+                    best += WEIGHT_NAME;
+                } else if (doc.name.startsWith(term)) {
+                    best += WEIGHT_NAME / 2;
+                }
+            }
+            if (doc.approvalNumber.contains(term)) {
+                best = Math.max(best, WEIGHT_APPROVAL_NUMBER);
+            }
+            if (doc.mainIngredient.contains(term)) {
+                best = Math.max(best, WEIGHT_MAIN_INGREDIENT);
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private void addDocument(Drug drug) {
+        int docId = toDocId(drug.getId());
+        if (docId < 0) {
+            return;
+        }
+        IndexedDrug doc = new IndexedDrug(drug);
+        documents.put(docId, doc);
+        for (String token : doc.tokens()) {
+            postings.computeIfAbsent(token, k -> new PostingList()).add(docId);
+        }
+        for (String token : tokenizeDocument(doc.manufacturer)) {
+            manufacturerPostings.computeIfAbsent(token, k -> new PostingList()).add(docId);
+        }
+    }
+
+    private void removeDocument(int docId) {
+        IndexedDrug doc = documents.remove(docId);
+        if (doc == null) {
+            return;
+        }
+        removePostings(postings, doc.tokens(), docId);
+        removePostings(manufacturerPostings, tokenizeDocument(doc.manufacturer), docId);
+    }
+
+    private static void removePostings(Map<String, PostingList> index, Set<String> tokens, int docId) {
+        for (String token : tokens) {
+            PostingList list = index.get(token);
+            if (list != null) {
+                list.remove(docId);
+                if (list.size() == 0) {
+                    index.remove(token);
+                }
+            }
+        }
+    }
+
+    private int toDocId(Long id) {
+        if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+            log.warn("药品ID超出索引范围，跳过索引: id={}", id);
+            return -1;
+        }
+        return id.intValue();
+    }
+
+    /**
+     * 归一化：转小写，非字母数字汉字的字符视为分隔符
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把查询串按分隔符拆成多个关键词
+     */
+    static List<String> splitTerms(String text) {
+        String normalized = normalize(text).trim();
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : normalized.split(" +")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 文档分词：每个片段产出全部单字和相邻二元组
+     */
+    static Set<String> tokenizeDocument(String normalized) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String segment : normalized.split(" +")) {
+            for (int i = 0; i < segment.length(); i++) {
+                tokens.add(segment.substring(i, i + 1));
+                if (i + 1 < segment.length()) {
+                    tokens.add(segment.substring(i, i + 2));
+                }
+            }
+        }
+        tokens.remove("");
+        return tokens;
+    }
+
+    /**
+     * 查询分词：单字关键词用单字，否则只用二元组（选择性更好）
+     */
+    static Set<String> tokenizeQuery(String term) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (term.length() == 1) {
+            tokens.add(term);
+            return tokens;
+        }
+        for (int i = 0; i + 1 < term.length(); i++) {
+            tokens.add(term.substring(i, i + 2));
+        }
+        return tokens;
+    }
+
+    /**
+     * 搜索命中结果
+     */
+    public static class Hit {
+
+        private final long score;
+
+        private final long id;
+
+        Hit(long score, long id) {
+            this.score = score;
+            this.id = id;
+        }
+
+        public long getScore() {
+            return score;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    /**
+     * 缓存的命中结果及其对应的索引版本
+     */
+    private static class Matched {
+
+        private final long version;
+
+        private final List<Hit> hits;
+
+        Matched(long version, List<Hit> hits) {
+            this.version = version;
+            this.hits = hits;
+        }
+    }
+
+    /**
+     * 索引中保存的药品字段（已归一化）
+     */
+    private static class IndexedDrug {
+
+        private final String name;
+        private final String manufacturer;
+        private final String mainIngredient;
+        private final String approvalNumber;
+        private Integer status;
+
+        IndexedDrug(Drug drug) {
+            this.name = normalize(drug.getName());
+            this.manufacturer = normalize(drug.getManufacturer());
+            this.mainIngredient = normalize(drug.getMainIngredient());
+            this.approvalNumber = normalize(drug.getApprovalNumber());
+            this.status = drug.getStatus();
+        }
+
+        /**
+         * 关键词词元，不含生产厂家
+         */
+        Set<String> tokens() {
+            Set<String> tokens = tokenizeDocument(name);
+            tokens.addAll(tokenizeDocument(mainIngredient));
+            tokens.addAll(tokenizeDocument(approvalNumber));
+            return tokens;
+        }
+    }
+
+    /**
+     * 倒排表：有序int数组，避免装箱开销
+     */
+    static class PostingList {
+
+        private int[] ids = new int[4];
+
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        void add(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            if (size > 0 && size * 4 < ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /**
+         * 多个倒排表求交集，从最短的表开始逐个二分校验
+         */
+        static int[] intersect(List<PostingList> lists) {
+            List<PostingList> sorted = new ArrayList<>(lists);
+            sorted.sort((a, b) -> Integer.compare(a.size, b.size));
+            PostingList smallest = sorted.get(0);
+
+            int[] result = new int[smallest.size];
+            int count = 0;
+            outer:
+            for (int i = 0; i < smallest.size; i++) {
+                int id = smallest.ids[i];
+                for (int j = 1; j < sorted.size(); j++) {
+                    if (!sorted.get(j).contains(id)) {
+                        continue outer;
+                    }
+                }
+                result[count++] = id;
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
@@ -1,13 +1,35 @@
 package com.health.service;
 
+import com.health.common.CursorPage;
+import com.health.common.DrugProjection;
+import com.health.common.SeekCursor;
+import com.health.common.UpsertResult;
+import com.health.config.DrugApiConfig;
+import com.health.config.DrugCacheConfig;
 import com.health.entity.Drug;
 import com.health.mapper.DrugMapper;
+import com.health.util.BarcodeUtils;
+import com.health.util.RequestDeadline;
+import com.health.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 药品服务类
@@ -25,6 +47,47 @@ public class DrugService {
     @Autowired
     private DrugApiService drugApiService;
     
+    @Autowired
+    private DrugCacheService drugCacheService;
+    
+    @Autowired
+    private DrugWriteBehindService drugWriteBehindService;
+    
+    @Autowired
+    private DrugSearchIndex drugSearchIndex;
+    
+    @Autowired
+    private DrugSuggestService drugSuggestService;
+    
+    @Autowired
+    private DrugSearchCacheService drugSearchCacheService;
+    
+    @Autowired
+    private StatisticsService statisticsService;
+    
+    @Autowired
+    private PopularDrugTracker popularDrugTracker;
+    
+    @Autowired
+    private DrugResponseCacheService drugResponseCacheService;
+    
+    @Autowired
+    private DrugKeyFilter drugKeyFilter;
+    
+    @Autowired
+    private DrugApiConfig drugApiConfig;
+    
+    @Autowired
+    private DrugCacheConfig drugCacheConfig;
+    
+    @Autowired
+    private ThreadPoolTaskExecutor drugApiExecutor;
+    
+    /**
+     * 条形码本地未命中时的并发合并
+     */
+    private final SingleFlight<Drug> barcodeMissFlight = new SingleFlight<>();
+    
     /**
      * 根据ID查询药品
      */
@@ -32,7 +95,9 @@ public class DrugService {
         if (id == null) {
             return null;
         }
-        return drugMapper.selectById(id);
+        Drug drug = drugMapper.selectById(id);
+        popularDrugTracker.record(drug, PopularDrugTracker.WEIGHT_DETAIL);
+        return drug;
     }
     
     /**
@@ -43,29 +108,192 @@ public class DrugService {
             return null;
         }
         
-        // 先从本地数据库查询
-        Drug drug = drugMapper.selectByBarcode(barcode);
+        // 校验位错误且本地一定没有的条形码直接返回，不产生任何IO
+        boolean wellFormed = isWellFormedBarcode(barcode);
+        if (!wellFormed && !drugKeyFilter.mightContain(barcode, null)) {
+            drugCacheService.recordInvalid();
+            return null;
+        }
         
-        if (drug == null) {
-            // 本地没有，调用API查询
+        // 先查缓存（含否定结果）
+        Drug drug = drugCacheService.lookup(barcode);
+        if (drug == DrugCacheService.MISSING) {
+            return null;
+        }
+        if (drug != null) {
+            popularDrugTracker.record(drug, PopularDrugTracker.WEIGHT_BARCODE);
+            return drug;
+        }
+        
+        // 再从本地数据库查询
+        drug = drugMapper.selectByBarcode(barcode);
+        
+        if (drug == null && wellFormed) {
+            // 本地没有，调用API查询；同一条形码的并发请求合并为一次查询和一次保存
+            drug = barcodeMissFlight.execute(barcode, () -> loadDrugFromApi(barcode));
+        }
+        
+        if (drug != null) {
+            drugCacheService.put(barcode, drug);
+            popularDrugTracker.record(drug, PopularDrugTracker.WEIGHT_BARCODE);
+        }
+        return drug;
+    }
+    
+    /**
+     * 批量根据条形码查询药品
+     * <p>
+     * 缓存未命中的条形码用一次IN查询读取本地数据库，仍未命中的并发调用API，
+     * 整体超过截止时间仍未返回的条形码标记为超时，其余结果照常返回。
+     *
+     * @return 按请求顺序排列的每个条形码的查询结果
+     */
+    public List<Map<String, Object>> getDrugsByBarcodes(List<String> barcodes) {
+        Map<String, Drug> found = new LinkedHashMap<>();
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String barcode : barcodes) {
+            if (barcode != null && !barcode.trim().isEmpty()) {
+                distinct.add(barcode.trim());
+            }
+        }
+        
+        // 校验位错误且本地一定没有的直接判为无效，再查缓存（含否定结果）
+        Set<String> invalid = new HashSet<>();
+        List<String> cacheMisses = new ArrayList<>();
+        for (String barcode : distinct) {
+            if (!isWellFormedBarcode(barcode) && !drugKeyFilter.mightContain(barcode, null)) {
+                drugCacheService.recordInvalid();
+                invalid.add(barcode);
+                continue;
+            }
+            Drug drug = drugCacheService.lookup(barcode);
+            if (drug == DrugCacheService.MISSING) {
+                // 已知API没有该药品，按未找到返回
+                continue;
+            }
+            if (drug != null) {
+                found.put(barcode, drug);
+            } else {
+                cacheMisses.add(barcode);
+            }
+        }
+        
+        // 本地数据库一次IN查询
+        if (!cacheMisses.isEmpty()) {
+            for (Drug drug : drugMapper.selectByBarcodes(cacheMisses)) {
+                found.putIfAbsent(drug.getBarcode(), drug);
+                drugCacheService.put(drug.getBarcode(), drug);
+            }
+        }
+        
+        // 剩余条形码并发调用API，线程池大小即并发上限；截止时间传递到工作线程，超时后的调用不再发出
+        long deadline = RequestDeadline.within(drugApiConfig.getBatchTimeoutMs());
+        Map<String, CompletableFuture<Drug>> pending = new LinkedHashMap<>();
+        for (String barcode : cacheMisses) {
+            if (!found.containsKey(barcode) && isWellFormedBarcode(barcode)) {
+                pending.put(barcode, CompletableFuture.supplyAsync(() -> RequestDeadline.call(deadline,
+                        () -> barcodeMissFlight.execute(barcode, () -> loadDrugFromApi(barcode))), drugApiExecutor));
+            }
+        }
+        Set<String> timedOut = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        if (!pending.isEmpty()) {
             try {
-                drug = drugApiService.queryDrugByBarcode(barcode);
-                if (drug != null) {
-                    // 保存到本地数据库
-                    saveDrug(drug);
+                CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                        .get(drugApiConfig.getBatchTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("批量条形码查询超时: pending={}", pending.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // 单个条形码失败在下方逐个处理
+            }
+            for (Map.Entry<String, CompletableFuture<Drug>> entry : pending.entrySet()) {
+                CompletableFuture<Drug> future = entry.getValue();
+                if (!future.isDone()) {
+                    timedOut.add(entry.getKey());
+                } else if (future.isCompletedExceptionally()) {
+                    failed.add(entry.getKey());
+                } else if (future.join() != null) {
+                    found.put(entry.getKey(), future.join());
                 }
-            } catch (Exception e) {
-                log.error("API查询药品失败: barcode={}", barcode, e);
             }
         }
         
+        List<Map<String, Object>> results = new ArrayList<>(distinct.size());
+        for (String barcode : distinct) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("barcode", barcode);
+            Drug drug = found.get(barcode);
+            if (drug != null) {
+                item.put("status", "FOUND");
+                item.put("drug", drug);
+                popularDrugTracker.record(drug, PopularDrugTracker.WEIGHT_BARCODE);
+            } else if (invalid.contains(barcode)) {
+                item.put("status", "INVALID");
+            } else if (timedOut.contains(barcode)) {
+                item.put("status", "TIMEOUT");
+            } else if (failed.contains(barcode)) {
+                item.put("status", "ERROR");
+            } else {
+                item.put("status", "NOT_FOUND");
+            }
+            results.add(item);
+        }
+        return results;
+    }
+    
+    /**
+     * 调用API查询条形码并保存到本地数据库
+     */
+    private Drug loadDrugFromApi(String barcode) {
+        // 合并窗口之间可能已有请求完成保存，先再查一次本地
+        Drug drug = drugMapper.selectByBarcode(barcode);
+        if (drug != null) {
+            return drug;
+        }
+        
+        try {
+            DrugApiService.DrugLookup lookup = drugApiService.lookupDrugByBarcode(barcode);
+            drug = lookup.getDrug();
+            if (drug != null) {
+                // 先写缓存再结束合并，保证未落库期间的后续查询能命中缓存
+                drugCacheService.put(barcode, drug);
+                // 后台异步保存到本地数据库
+                persistAsync(drug);
+            } else if (lookup.isNotFound()) {
+                // API明确没有该药品，记入否定缓存，短期内重复扫码不再查库和调用API
+                drugCacheService.putMissing(barcode);
+            }
+        } catch (Exception e) {
+            log.error("API查询药品失败: barcode={}", barcode, e);
+        }
         return drug;
     }
     
+    /**
+     * 提交API来源药品异步落库，队列已满时退化为同步保存
+     */
+    private void persistAsync(Drug drug) {
+        drug.setComplete(DrugEnrichmentService.isComplete(drug));
+        if (drugWriteBehindService.submit(drug)) {
+            return;
+        }
+        log.warn("药品异步落库队列已满，改为同步保存: name={}", drug.getName());
+        try {
+            saveDrug(drug);
+        } catch (Exception e) {
+            log.error("同步保存药品失败: name={}", drug.getName(), e);
+        }
+    }
+    
     /**
      * 搜索药品（优先从本地数据库搜索，如果结果不足则调用API补充）
+     *
+     * @param projection 返回字段，本地查询只读取这些列，API补充的结果按投影裁剪
      */
-    public List<Drug> searchDrugs(String keyword, String manufacturer, Integer status, Integer page, Integer size) {
+    public List<Drug> searchDrugs(String keyword, String manufacturer, Integer status, Integer page, Integer size,
+                                  DrugProjection projection) {
         if (page == null || page < 1) {
             page = 1;
         }
@@ -74,19 +302,41 @@ public class DrugService {
         }
         
         int offset = (page - 1) * size;
+        // 与API结果去重需要条形码
+        List<String> columns = projection.with("barcode").columns();
         
-        // 先从本地数据库搜索
-        List<Drug> localDrugs = drugMapper.searchDrugs(keyword, manufacturer, status, offset, size);
+        // 先从本地搜索，有关键词或厂家条件时走内存倒排索引
+        List<Drug> localDrugs;
+        if (useSearchIndex(keyword, manufacturer)) {
+            localDrugs = selectByIdsInOrder(drugSearchIndex.search(keyword, manufacturer, status, offset, size),
+                    columns);
+        } else {
+            localDrugs = drugMapper.searchDrugs(keyword, manufacturer, status, offset, size, columns);
+        }
         
         // 如果本地结果不足，调用API补充
         if (localDrugs.size() < size && keyword != null && !keyword.trim().isEmpty()) {
             try {
-                List<Drug> apiDrugs = drugApiService.searchDrugs(keyword, page, size - localDrugs.size());
+                // API搜索结果经 drug_search_cache 缓存，只有实际调用API时才把结果交由后台批量落库
+                int apiPage = page;
+                int remaining = size - localDrugs.size();
+                List<Drug> apiDrugs = drugSearchCacheService.search(keyword, page, () -> {
+                    List<Drug> drugs = drugApiService.searchDrugs(keyword, apiPage, remaining);
+                    for (Drug drug : drugs) {
+                        persistAsync(drug);
+                    }
+                    return drugs;
+                });
                 
-                // 保存API返回的药品到本地数据库
+                // 按条形码与本地结果去重
+                Set<String> localBarcodes = new HashSet<>();
+                for (Drug drug : localDrugs) {
+                    if (drug.getBarcode() != null) {
+                        localBarcodes.add(drug.getBarcode());
+                    }
+                }
                 for (Drug drug : apiDrugs) {
-                    if (!drugMapper.existsByBarcode(drug.getBarcode())) {
-                        saveDrug(drug);
+                    if (drug.getBarcode() == null || localBarcodes.add(drug.getBarcode())) {
                         localDrugs.add(drug);
                     }
                 }
@@ -95,11 +345,173 @@ public class DrugService {
             }
         }
         
-        return localDrugs;
+        for (Drug drug : localDrugs) {
+            popularDrugTracker.record(drug, PopularDrugTracker.WEIGHT_SEARCH);
+        }
+        return projection.apply(localDrugs);
+    }
+    
+    /**
+     * 游标方式搜索药品
+     * <p>
+     * 有关键词或厂家条件时按相关度 (score, id) 在内存索引中定位，否则按 (created_at, id) 在数据库中seek，
+     * 都不需要跳过前面的行。游标模式只返回本地数据，不调用第三方API补充。
+     *
+     * @param cursorToken 上一页返回的续查令牌，空串表示第一页
+     * @param projection 返回字段，只读取这些列
+     * @throws IllegalArgumentException 游标无效或与当前查询的排序方式不一致
+     */
+    public CursorPage<Drug> searchDrugsByCursor(String keyword, String manufacturer, Integer status,
+                                                String cursorToken, Integer size, CursorPage.CountMode countMode,
+                                                DrugProjection projection) {
+        if (size == null || size < 1) {
+            size = 10;
+        }
+        SeekCursor cursor = SeekCursor.decode(cursorToken);
+        CursorPage<Drug> page = new CursorPage<>();
+        
+        if (useSearchIndex(keyword, manufacturer)) {
+            if (cursor != null && cursor.isCreatedOrder()) {
+                throw new IllegalArgumentException("分页游标已失效，请从第一页重新查询");
+            }
+            List<DrugSearchIndex.Hit> hits = drugSearchIndex.searchAfter(keyword, manufacturer, status,
+                    cursor == null ? null : cursor.getScore(), cursor == null ? null : cursor.getId(), size + 1);
+            boolean hasMore = hits.size() > size;
+            if (hasMore) {
+                hits = hits.subList(0, size);
+            }
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (DrugSearchIndex.Hit hit : hits) {
+                ids.add(hit.getId());
+            }
+            page.setList(selectByIdsInOrder(ids, projection.columns()));
+            page.setHasMore(hasMore);
+            if (hasMore) {
+                DrugSearchIndex.Hit last = hits.get(hits.size() - 1);
+                page.setNextCursor(SeekCursor.ofScore(last.getScore(), last.getId()).encode());
+            }
+            if (countMode != CursorPage.CountMode.NONE) {
+                // 与本页共用索引缓存的同一次匹配结果，直接给精确值
+                page.setTotal(drugSearchIndex.count(keyword, manufacturer, status));
+                page.setTotalEstimated(false);
+            }
+            return page;
+        }
+        
+        if (cursor != null && !cursor.isCreatedOrder()) {
+            throw new IllegalArgumentException("分页游标已失效，请从第一页重新查询");
+        }
+        // 生成下一页游标需要创建时间
+        List<Drug> drugs = drugMapper.searchDrugsAfter(keyword, manufacturer, status,
+                cursor == null ? null : cursor.getCreatedAt(), cursor == null ? null : cursor.getId(), size + 1,
+                projection.with("createdAt").columns());
+        boolean hasMore = drugs.size() > size;
+        if (hasMore) {
+            drugs = new ArrayList<>(drugs.subList(0, size));
+            Drug last = drugs.get(drugs.size() - 1);
+            page.setNextCursor(SeekCursor.ofCreated(last.getCreatedAt(), last.getId()).encode());
+        }
+        page.setList(projection.apply(drugs));
+        page.setHasMore(hasMore);
+        
+        boolean noFilter = (keyword == null || keyword.trim().isEmpty())
+                && (manufacturer == null || manufacturer.trim().isEmpty()) && status == null;
+        if (countMode == CursorPage.CountMode.ESTIMATE && noFilter) {
+            page.setTotal(drugMapper.estimateTotalDrugs());
+            page.setTotalEstimated(true);
+        } else if (countMode != CursorPage.CountMode.NONE) {
+            page.setTotal(drugMapper.selectCount(keyword, manufacturer, status));
+            page.setTotalEstimated(false);
+        }
+        return page;
+    }
+    
+    /**
+     * 是否使用内存索引搜索
+     */
+    private boolean useSearchIndex(String keyword, String manufacturer) {
+        boolean hasCondition = (keyword != null && !keyword.trim().isEmpty())
+                || (manufacturer != null && !manufacturer.trim().isEmpty());
+        return hasCondition && drugSearchIndex.isReady();
+    }
+    
+    /**
+     * 用API详情补全本地药品（后台补全任务调用）
+     *
+     * @param local  待补全的本地药品，至少包含ID和条形码
+     * @param detail API返回的详情
+     * @return 补全后是否已完整
+     */
+    public boolean applyEnrichment(Drug local, Drug detail) {
+        detail.setId(local.getId());
+        detail.setComplete(DrugEnrichmentService.isComplete(detail));
+        if (drugMapper.updateEnrichment(detail) == 0) {
+            return false;
+        }
+        drugCacheService.evict(local.getBarcode());
+        evictReadCaches(local.getId(), local.getBarcode());
+        Drug updatedDrug = drugMapper.selectById(local.getId());
+        if (updatedDrug != null) {
+            drugKeyFilter.put(updatedDrug);
+            drugSearchIndex.put(updatedDrug);
+            drugSuggestService.put(updatedDrug);
+        }
+        return Boolean.TRUE.equals(detail.getComplete());
+    }
+    
+    /**
+     * 条形码格式是否可能有效：未开启校验时一律视为有效
+     */
+    private boolean isWellFormedBarcode(String barcode) {
+        return !drugCacheConfig.isChecksumValidation() || BarcodeUtils.isValidGtin(barcode);
+    }
+    
+    /**
+     * 失效药品详情、条形码查询接口的响应字节缓存
+     *
+     * @param id 药品ID，为null时只失效条形码
+     */
+    private void evictReadCaches(Long id, String... barcodes) {
+        String[] keys = new String[barcodes.length + 1];
+        keys[0] = id == null ? null : EntityTagService.drugKey(id);
+        for (int i = 0; i < barcodes.length; i++) {
+            keys[i + 1] = EntityTagService.barcodeKey(barcodes[i]);
+        }
+        drugResponseCacheService.evict(keys);
+    }
+    
+    /**
+     * 按ID批量查询药品，并保持传入ID的顺序
+     *
+     * @param columns 查询的列，为null时查询全部列
+     */
+    private List<Drug> selectByIdsInOrder(List<Long> ids, List<String> columns) {
+        return selectByIdsInOrder(ids, columns, null);
+    }
+    
+    private List<Drug> selectByIdsInOrder(List<Long> ids, List<String> columns, Integer status) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Drug> drugMap = new HashMap<>();
+        for (Drug drug : drugMapper.selectByIds(ids, columns, status)) {
+            drugMap.put(drug.getId(), drug);
+        }
+        List<Drug> drugs = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Drug drug = drugMap.get(id);
+            if (drug != null) {
+                drugs.add(drug);
+            }
+        }
+        return drugs;
     }
     
     /**
      * 保存药品
+     * <p>
+     * 布隆过滤器判定条形码、批准文号一定不存在时直接插入，不再逐项查询；
+     * 并发插入相同药品时由唯一索引拦截。
      */
     @Transactional
     public Drug saveDrug(Drug drug) {
@@ -107,23 +519,42 @@ public class DrugService {
             throw new IllegalArgumentException("药品信息不能为空");
         }
         
-        // 检查条形码是否已存在
-        if (drug.getBarcode() != null && drugMapper.existsByBarcode(drug.getBarcode())) {
-            throw new RuntimeException("该条形码的药品已存在");
-        }
-        
-        // 检查批准文号是否已存在
-        if (drug.getApprovalNumber() != null && drugMapper.existsByApprovalNumber(drug.getApprovalNumber())) {
-            throw new RuntimeException("该批准文号的药品已存在");
+        if (drugKeyFilter.mightContain(drug.getBarcode(), drug.getApprovalNumber())) {
+            // 检查条形码是否已存在
+            if (drug.getBarcode() != null && drugMapper.existsByBarcode(drug.getBarcode())) {
+                throw new RuntimeException("该条形码的药品已存在");
+            }
+            
+            // 检查批准文号是否已存在
+            if (drug.getApprovalNumber() != null && drugMapper.existsByApprovalNumber(drug.getApprovalNumber())) {
+                throw new RuntimeException("该批准文号的药品已存在");
+            }
+            drugKeyFilter.recordFalsePositive();
         }
         
         // 设置默认状态
         if (drug.getStatus() == null) {
-            drug.setStatus(Drug.Status.ACTIVE.getValue());
+            drug.setStatus(Drug.Status.NORMAL.getCode());
+        }
+        if (drug.getDataSource() == null) {
+            drug.setDataSource(Drug.DataSource.MANUAL.getCode());
         }
+        drug.setComplete(DrugEnrichmentService.isComplete(drug));
         
-        int result = drugMapper.insert(drug);
+        int result;
+        try {
+            result = drugMapper.insert(drug);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("该条形码或批准文号的药品已存在");
+        }
         if (result > 0) {
+            drugKeyFilter.put(drug);
+            // 清除该条形码可能存在的否定缓存
+            drugCacheService.evict(drug.getBarcode());
+            evictReadCaches(null, drug.getBarcode());
+            drugSearchIndex.put(drug);
+            drugSuggestService.put(drug);
+            statisticsService.onDrugsCreated(1);
             log.info("保存药品成功: drugId={}, name={}", drug.getId(), drug.getName());
             return drug;
         } else {
@@ -131,6 +562,71 @@ public class DrugService {
         }
     }
     
+    /**
+     * 插入或合并药品：条形码或批准文号已存在时合并到已有记录（传入的非空字段覆盖原值），否则新建
+     * <p>
+     * 写入是一条 INSERT ... ON DUPLICATE KEY UPDATE，按返回的影响行数区分新建（1）与合并（2）。
+     * 合并不改写已有的条形码、批准文号；传入的条形码和批准文号分属不同药品，或与被合并记录已有的值不一致时拒绝。
+     * 未传状态时新建为正常，合并保留原状态。
+     */
+    @Transactional
+    public UpsertResult<Drug> upsertDrug(Drug drug) {
+        if (drug == null || drug.getName() == null || drug.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("药品名称不能为空");
+        }
+        if (drug.getBarcode() == null && drug.getApprovalNumber() == null) {
+            throw new IllegalArgumentException("条形码和批准文号至少填写一项");
+        }
+        if (drug.getDataSource() == null) {
+            drug.setDataSource(Drug.DataSource.MANUAL.getCode());
+        }
+        drug.setComplete(DrugEnrichmentService.isComplete(drug));
+        
+        int affected;
+        try {
+            affected = drugMapper.upsert(drug);
+        } catch (DuplicateKeyException e) {
+            // 合并时补写的条形码或批准文号已属于另一条药品
+            throw new RuntimeException("条形码与批准文号分别属于不同的药品，无法合并");
+        }
+        drugCacheService.evict(drug.getBarcode());
+        
+        UpsertResult<Drug> result = new UpsertResult<>();
+        if (affected == 1) {
+            if (drug.getStatus() == null) {
+                drug.setStatus(Drug.Status.NORMAL.getCode());
+            }
+            drugKeyFilter.put(drug);
+            evictReadCaches(null, drug.getBarcode());
+            drugSearchIndex.put(drug);
+            drugSuggestService.put(drug);
+            statisticsService.onDrugsCreated(1);
+            log.info("新建药品成功: drugId={}, name={}", drug.getId(), drug.getName());
+            result.setRecord(drug);
+            result.setCreated(true);
+            return result;
+        }
+        
+        Drug merged = drugMapper.selectById(drug.getId());
+        if (!matchesKey(drug.getBarcode(), merged.getBarcode())
+                || !matchesKey(drug.getApprovalNumber(), merged.getApprovalNumber())) {
+            // 条形码命中一条、批准文号命中另一条（或与已有值不一致），回滚本次合并
+            throw new RuntimeException("条形码与批准文号分别属于不同的药品，无法合并");
+        }
+        drugKeyFilter.put(merged);
+        evictReadCaches(merged.getId(), merged.getBarcode());
+        drugSearchIndex.put(merged);
+        drugSuggestService.put(merged);
+        log.info("合并药品成功: drugId={}, name={}", merged.getId(), merged.getName());
+        result.setRecord(merged);
+        result.setCreated(false);
+        return result;
+    }
+    
+    private static boolean matchesKey(String requested, String stored) {
+        return requested == null || requested.equals(stored);
+    }
+    
     /**
      * 更新药品信息
      */
@@ -156,8 +652,17 @@ public class DrugService {
         
         int result = drugMapper.updateById(drug);
         if (result > 0) {
+            drugCacheService.evict(existingDrug.getBarcode());
+            if (drug.getBarcode() != null && !drug.getBarcode().equals(existingDrug.getBarcode())) {
+                drugCacheService.evict(drug.getBarcode());
+            }
+            evictReadCaches(drug.getId(), existingDrug.getBarcode(), drug.getBarcode());
             log.info("更新药品信息成功: drugId={}", drug.getId());
-            return drugMapper.selectById(drug.getId());
+            Drug updatedDrug = drugMapper.selectById(drug.getId());
+            drugKeyFilter.put(updatedDrug);
+            drugSearchIndex.put(updatedDrug);
+            drugSuggestService.put(updatedDrug);
+            return updatedDrug;
         } else {
             throw new RuntimeException("更新药品信息失败");
         }
@@ -179,6 +684,12 @@ public class DrugService {
         
         int result = drugMapper.deleteById(id);
         if (result > 0) {
+            drugCacheService.evict(drug.getBarcode());
+            evictReadCaches(id, drug.getBarcode());
+            drugSearchIndex.remove(id);
+            drugSuggestService.remove(id);
+            popularDrugTracker.remove(id);
+            statisticsService.onDrugDeleted(drug.getCreatedAt());
             log.info("删除药品成功: drugId={}", id);
             return true;
         } else {
@@ -202,6 +713,14 @@ public class DrugService {
         
         int result = drugMapper.updateStatus(id, status);
         if (result > 0) {
+            drugCacheService.evict(drug.getBarcode());
+            evictReadCaches(id, drug.getBarcode());
+            drugSearchIndex.updateStatus(id, status);
+            drug.setStatus(status);
+            drugSuggestService.put(drug);
+            if (!Drug.Status.NORMAL.getCode().equals(status)) {
+                popularDrugTracker.remove(id);
+            }
             log.info("更新药品状态成功: drugId={}, status={}", id, status);
             return true;
         } else {
@@ -210,32 +729,59 @@ public class DrugService {
     }
     
     /**
-     * 根据药品名称模糊查询
+     * 根据药品名称前缀联想查询
+     *
+     * @param projection 返回字段
      */
-    public List<Drug> getDrugsByNameLike(String name, Integer limit) {
+    public List<Drug> getDrugsByNameLike(String name, Integer limit, DrugProjection projection) {
         if (name == null || name.trim().isEmpty()) {
             return List.of();
         }
         if (limit == null || limit < 1) {
             limit = 10;
         }
-        return drugMapper.selectByNameLike(name, limit);
+        // 前缀树可用时直接从内存返回（支持拼音全拼和首字母），所需字段超出前缀树保存的范围时按ID回表
+        if (drugSuggestService.isReady()) {
+            List<Drug> suggestions = drugSuggestService.suggest(name, Math.min(limit, DrugSuggestService.TOP_K));
+            if (projection.isCoveredBy(DrugSuggestService.SUGGEST_PROPERTIES)) {
+                return projection.apply(suggestions);
+            }
+            List<Long> ids = new ArrayList<>(suggestions.size());
+            for (Drug drug : suggestions) {
+                ids.add(drug.getId());
+            }
+            return selectByIdsInOrder(ids, projection.columns());
+        }
+        return drugMapper.selectByNameLike(name, limit, projection.columns());
     }
     
     /**
-     * 获取热门药品
+     * 获取热门药品（按实时访问热度，尚无统计数据时回退到数据库）
+     * <p>
+     * 热度统计只保存药品ID，取排名后按ID回表读取所需的列，只返回正常状态的药品
+     * （检查点恢复的ID可能已下架）；多取一些排名以补足被过滤掉的药品。
+     *
+     * @param projection 返回字段
      */
-    public List<Drug> getPopularDrugs(Integer limit) {
+    public List<Drug> getPopularDrugs(String window, Integer limit, DrugProjection projection) {
         if (limit == null || limit < 1) {
             limit = 10;
         }
-        return drugMapper.selectPopularDrugs(limit);
+        List<Long> ids = popularDrugTracker.top(PopularDrugTracker.Window.of(window), limit * 2);
+        if (!ids.isEmpty()) {
+            List<Drug> drugs = selectByIdsInOrder(ids, projection.columns(), Drug.Status.NORMAL.getCode());
+            return drugs.size() > limit ? new ArrayList<>(drugs.subList(0, limit)) : drugs;
+        }
+        return drugMapper.selectPopularDrugs(limit, projection.columns());
     }
     
     /**
      * 查询药品总数
      */
     public Long getDrugCount(String keyword, String manufacturer, Integer status) {
+        if (useSearchIndex(keyword, manufacturer)) {
+            return drugSearchIndex.count(keyword, manufacturer, status);
+        }
         return drugMapper.selectCount(keyword, manufacturer, status);
     }
     
@@ -243,6 +789,9 @@ public class DrugService {
      * 统计药品总数
      */
     public Long getTotalDrugCount() {
+        if (statisticsService.isReady()) {
+            return statisticsService.getTotalDrugs();
+        }
         return drugMapper.countTotalDrugs();
     }
     
@@ -250,9 +799,33 @@ public class DrugService {
      * 统计今日新增药品数
      */
     public Long getTodayNewDrugCount() {
+        if (statisticsService.isReady()) {
+            return statisticsService.getTodayNewDrugs();
+        }
         return drugMapper.countTodayNewDrugs();
     }
     
+    /**
+     * 获取条形码缓存命中统计
+     */
+    public Map<String, Object> getBarcodeCacheStats() {
+        return drugCacheService.getStats();
+    }
+    
+    /**
+     * 获取API搜索结果缓存统计
+     */
+    public Map<String, Object> getSearchCacheStats() {
+        return drugSearchCacheService.getStats();
+    }
+    
+    /**
+     * 获取异步落库队列统计
+     */
+    public Map<String, Object> getWriteBehindStats() {
+        return drugWriteBehindService.getStats();
+    }
+    
     /**
      * 批量查询药品
      */
@@ -260,6 +833,6 @@ public class DrugService {
         if (ids == null || ids.isEmpty()) {
             return List.of();
         }
-        return drugMapper.selectByIds(ids);
+        return drugMapper.selectByIds(ids, null, null);
     }
 }
\ No newline at end of file
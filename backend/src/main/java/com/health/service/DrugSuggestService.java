@@ -0,0 +1,433 @@
+package com.health.service;
+
+import cn.hutool.extra.pinyin.PinyinUtil;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import com.health.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 药品名称联想服务
+ * <p>
+ * 以药品名称、拼音全拼和拼音首字母为键构建前缀树，每个节点预先保存按热度排序的前K条补全结果，
+ * 查询只需沿前缀走到对应节点直接返回。前缀树节点不可变，增量更新时只复制被修改的路径，
+ * 写完后替换根节点引用，读线程始终读取一个完整快照，无需加锁。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugSuggestService {
+
+    /**
+     * 每个节点预存的补全条数，也是单次联想返回的上限
+     */
+    public static final int TOP_K = 10;
+
+    /**
+     * 联想条目保存的药品属性，请求的字段超出此范围时需要回表
+     */
+    public static final Set<String> SUGGEST_PROPERTIES =
+            Set.of("id", "name", "manufacturer", "specification", "imageUrl");
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong((Suggestion s) -> -s.weight)
+            .thenComparingInt(s -> s.name.length())
+            .thenComparingLong(s -> s.id);
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    private volatile Node root = Node.EMPTY;
+
+    /**
+     * 写线程互斥锁；全量构建期间会查询数据库，使用显式锁而非synchronized，避免虚拟线程被钉住
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile boolean ready = false;
+
+    /**
+     * 已收录的药品，仅写线程访问
+     */
+    private final Map<Long, Suggestion> suggestions = new HashMap<>();
+
+    /**
+     * 药品对应的前缀树键，仅写线程访问
+     */
+    private final Map<Long, Set<String>> keysByDrug = new HashMap<>();
+
+    /**
+     * 应用启动完成后全量构建前缀树
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        writeLock.lock();
+        try {
+            suggestions.clear();
+            keysByDrug.clear();
+            Builder builder = new Builder();
+            for (Drug drug : drugMapper.selectAllForIndex()) {
+                if (!isSuggestable(drug)) {
+                    continue;
+                }
+                Suggestion suggestion = new Suggestion(drug, 0L);
+                Set<String> keys = keysOf(drug.getName());
+                suggestions.put(drug.getId(), suggestion);
+                keysByDrug.put(drug.getId(), keys);
+                for (String key : keys) {
+                    builder.add(key, suggestion);
+                }
+            }
+            root = builder.freeze();
+            ready = true;
+            log.info("药品联想前缀树构建完成: drugs={}, cost={}ms",
+                    suggestions.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("构建药品联想前缀树失败，联想将回退到数据库", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 前缀树是否可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 根据前缀获取联想结果（药品名称、拼音全拼或首字母）
+     */
+    public List<Drug> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        List<Drug> drugs = new ArrayList<>();
+        if (node == null) {
+            return drugs;
+        }
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            drugs.add(node.top[i].toDrug());
+        }
+        return drugs;
+    }
+
+    /**
+     * 新增或更新药品联想，在事务中调用时于提交后生效
+     */
+    public void put(Drug drug) {
+        if (drug == null || drug.getId() == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> doPut(drug));
+    }
+
+    /**
+     * 删除药品联想，在事务中调用时于提交后生效
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> doRemove(id));
+    }
+
+    /**
+     * 批量更新药品热度权重
+     */
+    public void updateWeights(Map<Long, Long> weights) {
+        writeLock.lock();
+        try {
+            Node newRoot = root;
+            for (Map.Entry<Long, Long> entry : weights.entrySet()) {
+                Suggestion old = suggestions.get(entry.getKey());
+                if (old == null || old.weight == entry.getValue()) {
+                    continue;
+                }
+                Suggestion updated = old.withWeight(entry.getValue());
+                suggestions.put(updated.id, updated);
+                for (String key : keysByDrug.get(updated.id)) {
+                    newRoot = newRoot.update(key, 0, updated.id, updated);
+                }
+            }
+            root = newRoot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doPut(Drug drug) {
+        writeLock.lock();
+        try {
+            Node newRoot = removeFrom(root, drug.getId());
+            if (isSuggestable(drug)) {
+                Suggestion old = suggestions.get(drug.getId());
+                Suggestion suggestion = new Suggestion(drug, old == null ? 0L : old.weight);
+                Set<String> keys = keysOf(drug.getName());
+                suggestions.put(drug.getId(), suggestion);
+                keysByDrug.put(drug.getId(), keys);
+                for (String key : keys) {
+                    newRoot = newRoot.update(key, 0, suggestion.id, suggestion);
+                }
+            }
+            root = newRoot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doRemove(Long id) {
+        writeLock.lock();
+        try {
+            root = removeFrom(root, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Node removeFrom(Node from, Long id) {
+        suggestions.remove(id);
+        Set<String> keys = keysByDrug.remove(id);
+        if (keys == null) {
+            return from;
+        }
+        Node newRoot = from;
+        for (String key : keys) {
+            newRoot = newRoot.update(key, 0, id, null);
+        }
+        return newRoot;
+    }
+
+    /**
+     * 只收录有名称且未下架的药品
+     */
+    private boolean isSuggestable(Drug drug) {
+        return drug.getName() != null && !drug.getName().trim().isEmpty()
+                && !Drug.Status.OFFLINE.getCode().equals(drug.getStatus());
+    }
+
+    /**
+     * 药品名称对应的前缀树键：名称、拼音全拼、拼音首字母
+     */
+    private Set<String> keysOf(String name) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalize(name));
+        try {
+            keys.add(normalize(PinyinUtil.getPinyin(name, "")));
+            keys.add(normalize(PinyinUtil.getFirstLetter(name, "")));
+        } catch (Exception e) {
+            log.warn("药品名称转拼音失败: name={}", name, e);
+        }
+        keys.remove("");
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Suggestion[] computeTop(Suggestion[] terminals, Node[] children) {
+        // 同一药品可能经由多个键出现在同一子树，按药品ID去重
+        Map<Long, Suggestion> merged = new LinkedHashMap<>();
+        for (Suggestion s : terminals) {
+            merged.put(s.id, s);
+        }
+        for (Node child : children) {
+            for (Suggestion s : child.top) {
+                merged.put(s.id, s);
+            }
+        }
+        List<Suggestion> list = new ArrayList<>(merged.values());
+        list.sort(RANKING);
+        return list.subList(0, Math.min(TOP_K, list.size())).toArray(new Suggestion[0]);
+    }
+
+    /**
+     * 联想条目
+     */
+    private static class Suggestion {
+
+        private final Long id;
+        private final String name;
+        private final String manufacturer;
+        private final String specification;
+        private final String imageUrl;
+        private final long weight;
+
+        Suggestion(Drug drug, long weight) {
+            this(drug.getId(), drug.getName(), drug.getManufacturer(), drug.getSpecification(), drug.getImageUrl(),
+                    weight);
+        }
+
+        private Suggestion(Long id, String name, String manufacturer, String specification, String imageUrl,
+                           long weight) {
+            this.id = id;
+            this.name = name;
+            this.manufacturer = manufacturer;
+            this.specification = specification;
+            this.imageUrl = imageUrl;
+            this.weight = weight;
+        }
+
+        Suggestion withWeight(long newWeight) {
+            return new Suggestion(id, name, manufacturer, specification, imageUrl, newWeight);
+        }
+
+        Drug toDrug() {
+            Drug drug = new Drug();
+            drug.setId(id);
+            drug.setName(name);
+            drug.setManufacturer(manufacturer);
+            drug.setSpecification(specification);
+            drug.setImageUrl(imageUrl);
+            return drug;
+        }
+    }
+
+    /**
+     * 不可变前缀树节点，子节点按字符有序存放
+     */
+    private static class Node {
+
+        static final Node EMPTY = new Node(new char[0], new Node[0], new Suggestion[0], new Suggestion[0]);
+
+        private final char[] labels;
+        private final Node[] children;
+        private final Suggestion[] terminals;
+        private final Suggestion[] top;
+
+        Node(char[] labels, Node[] children, Suggestion[] terminals, Suggestion[] top) {
+            this.labels = labels;
+            this.children = children;
+            this.terminals = terminals;
+            this.top = top;
+        }
+
+        Node child(char c) {
+            int pos = Arrays.binarySearch(labels, c);
+            return pos >= 0 ? children[pos] : null;
+        }
+
+        boolean isEmpty() {
+            return children.length == 0 && terminals.length == 0;
+        }
+
+        /**
+         * 复制路径更新键终点上的条目：replacement为null表示删除该药品
+         */
+        Node update(String key, int depth, Long drugId, Suggestion replacement) {
+            if (depth == key.length()) {
+                List<Suggestion> newTerminals = new ArrayList<>(terminals.length + 1);
+                for (Suggestion s : terminals) {
+                    if (!s.id.equals(drugId)) {
+                        newTerminals.add(s);
+                    }
+                }
+                if (replacement != null) {
+                    newTerminals.add(replacement);
+                }
+                Suggestion[] t = newTerminals.toArray(new Suggestion[0]);
+                return new Node(labels, children, t, computeTop(t, children));
+            }
+
+            char c = key.charAt(depth);
+            int pos = Arrays.binarySearch(labels, c);
+            Node oldChild = pos >= 0 ? children[pos] : EMPTY;
+            if (pos < 0 && replacement == null) {
+                return this;
+            }
+            Node newChild = oldChild.update(key, depth + 1, drugId, replacement);
+
+            char[] newLabels;
+            Node[] newChildren;
+            if (pos >= 0 && newChild.isEmpty()) {
+                newLabels = new char[labels.length - 1];
+                newChildren = new Node[children.length - 1];
+                System.arraycopy(labels, 0, newLabels, 0, pos);
+                System.arraycopy(labels, pos + 1, newLabels, pos, labels.length - pos - 1);
+                System.arraycopy(children, 0, newChildren, 0, pos);
+                System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+            } else if (pos >= 0) {
+                newLabels = labels;
+                newChildren = children.clone();
+                newChildren[pos] = newChild;
+            } else {
+                int insert = -pos - 1;
+                newLabels = new char[labels.length + 1];
+                newChildren = new Node[children.length + 1];
+                System.arraycopy(labels, 0, newLabels, 0, insert);
+                System.arraycopy(labels, insert, newLabels, insert + 1, labels.length - insert);
+                System.arraycopy(children, 0, newChildren, 0, insert);
+                System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+                newLabels[insert] = c;
+                newChildren[insert] = newChild;
+            }
+            return new Node(newLabels, newChildren, terminals, computeTop(terminals, newChildren));
+        }
+    }
+
+    /**
+     * 全量构建时使用的可变节点，构建完成后一次性自底向上计算前K条并冻结
+     */
+    private static class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<Suggestion> terminals = new ArrayList<>();
+
+        void add(String key, Suggestion suggestion) {
+            Builder node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), k -> new Builder());
+            }
+            node.terminals.add(suggestion);
+        }
+
+        Node freeze() {
+            char[] labels = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                frozen[i] = entry.getValue().freeze();
+                i++;
+            }
+            Suggestion[] t = terminals.toArray(new Suggestion[0]);
+            return new Node(labels, frozen, t, computeTop(t, frozen));
+        }
+    }
+}
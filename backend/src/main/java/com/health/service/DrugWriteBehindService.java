@@ -0,0 +1,242 @@
+package com.health.service;
+
+import com.health.config.DrugWriteBehindConfig;
+import com.health.entity.Drug;
+import com.health.mapper.DrugMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * API来源药品异步批量落库服务
+ * <p>
+ * 请求线程只负责入队，后台定时按批次去重后多行插入。
+ * 已存在的条形码、批准文号会在批次内用IN查询一次性过滤；过滤之后其他途径写入相同键导致整批冲突时逐行重试。
+ * 落库后用带ID的实体刷新条形码缓存，替换查询时缓存的API副本。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class DrugWriteBehindService {
+
+    @Autowired
+    private DrugWriteBehindConfig writeBehindConfig;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    @Autowired
+    private DrugSearchIndex drugSearchIndex;
+
+    @Autowired
+    private DrugSuggestService drugSuggestService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private DrugKeyFilter drugKeyFilter;
+
+    @Autowired
+    private DrugCacheService drugCacheService;
+
+    private BlockingQueue<Drug> queue;
+
+    /**
+     * 已入队未落库的条形码，避免同一药品重复入队
+     */
+    private final Set<String> pendingBarcodes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 持锁期间会写数据库，使用显式锁而非synchronized，避免虚拟线程被钉住
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(writeBehindConfig.getQueueCapacity());
+    }
+
+    /**
+     * 提交待落库药品
+     *
+     * @return 是否已接收（已在队列中也视为接收），队列满时返回false由调用方自行处理
+     */
+    public boolean submit(Drug drug) {
+        if (drug == null) {
+            return true;
+        }
+        String barcode = drug.getBarcode();
+        if (barcode != null && !pendingBarcodes.add(barcode)) {
+            return true;
+        }
+        if (drug.getStatus() == null) {
+            drug.setStatus(Drug.Status.NORMAL.getCode());
+        }
+        if (!queue.offer(drug)) {
+            if (barcode != null) {
+                pendingBarcodes.remove(barcode);
+            }
+            rejected.increment();
+            return false;
+        }
+        enqueued.increment();
+        return true;
+    }
+
+    /**
+     * 定时刷盘
+     */
+    @Scheduled(fixedDelayString = "${health.drug-write-behind.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 应用关闭前把队列中剩余数据全部落库
+     */
+    @PreDestroy
+    public void shutdown() {
+        int remaining = queue.size();
+        flush();
+        log.info("药品异步落库队列已清空: flushed={}", remaining);
+    }
+
+    /**
+     * 获取落库队列统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", writeBehindConfig.getQueueCapacity());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("persisted", persisted.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            List<Drug> batch = new ArrayList<>(writeBehindConfig.getBatchSize());
+            while (queue.drainTo(batch, writeBehindConfig.getBatchSize()) > 0) {
+                try {
+                    persistBatch(batch);
+                } catch (Exception e) {
+                    failed.add(batch.size());
+                    log.error("批量保存药品失败: size={}", batch.size(), e);
+                } finally {
+                    for (Drug drug : batch) {
+                        if (drug.getBarcode() != null) {
+                            pendingBarcodes.remove(drug.getBarcode());
+                        }
+                    }
+                    batch.clear();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void persistBatch(List<Drug> batch) {
+        Set<String> barcodes = new HashSet<>();
+        Set<String> approvalNumbers = new HashSet<>();
+        for (Drug drug : batch) {
+            if (drug.getBarcode() != null) {
+                barcodes.add(drug.getBarcode());
+            }
+            if (drug.getApprovalNumber() != null) {
+                approvalNumbers.add(drug.getApprovalNumber());
+            }
+        }
+
+        // 与saveDrug的唯一性校验保持一致：条形码、批准文号已存在的不再插入
+        Set<String> existingBarcodes = barcodes.isEmpty()
+                ? new HashSet<>() : new HashSet<>(drugMapper.selectExistingBarcodes(barcodes));
+        Set<String> existingApprovalNumbers = approvalNumbers.isEmpty()
+                ? new HashSet<>() : new HashSet<>(drugMapper.selectExistingApprovalNumbers(approvalNumbers));
+
+        List<Drug> toInsert = new ArrayList<>(batch.size());
+        List<String> skippedBarcodes = new ArrayList<>();
+        for (Drug drug : batch) {
+            // add()同时用于批次内去重
+            boolean duplicate = (drug.getBarcode() != null && !existingBarcodes.add(drug.getBarcode()))
+                    || (drug.getApprovalNumber() != null && !existingApprovalNumbers.add(drug.getApprovalNumber()));
+            if (duplicate) {
+                skipped.increment();
+                skippedBarcodes.add(drug.getBarcode());
+            } else {
+                toInsert.add(drug);
+            }
+        }
+
+        if (!toInsert.isEmpty()) {
+            List<Drug> inserted = insert(toInsert, skippedBarcodes);
+            persisted.add(inserted.size());
+            statisticsService.onDrugsCreated(inserted.size());
+            for (Drug drug : inserted) {
+                drugKeyFilter.put(drug);
+                drugSearchIndex.put(drug);
+                drugSuggestService.put(drug);
+                // 查询时缓存的是没有ID的API副本，换成落库后的实体
+                drugCacheService.put(drug.getBarcode(), drug);
+            }
+            log.debug("批量保存药品成功: size={}", inserted.size());
+        }
+        // 已存在的药品以库中记录为准，失效API副本，下次查询读库
+        drugCacheService.evictAll(skippedBarcodes);
+    }
+
+    /**
+     * 多行插入，整批因唯一键冲突失败时逐行插入，冲突的行计为跳过
+     * <p>
+     * 已存在键的检查与插入之间，saveDrug、合并写入或批量导入可能写入相同的条形码、批准文号，
+     * 多行INSERT会因一行冲突整批失败。
+     */
+    private List<Drug> insert(List<Drug> drugs, List<String> skippedBarcodes) {
+        try {
+            drugMapper.batchInsert(drugs);
+            return drugs;
+        } catch (DuplicateKeyException e) {
+            log.info("批量保存药品遇到唯一键冲突，改为逐行保存: size={}", drugs.size());
+        }
+        List<Drug> inserted = new ArrayList<>(drugs.size());
+        for (Drug drug : drugs) {
+            try {
+                drugMapper.batchInsert(List.of(drug));
+                inserted.add(drug);
+            } catch (DuplicateKeyException e) {
+                skipped.increment();
+                skippedBarcodes.add(drug.getBarcode());
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,79 @@
+package com.health.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读接口的条件请求（ETag / If-None-Match）支持
+ * <p>
+ * ETag 由实体ID和 updated_at 组成（药品的合并写入保证每次修改 updated_at 都会变化）。
+ * 校验值只从本次请求加载的实体计算，不在本地保存下发过的校验值：多实例部署时其他节点的修改
+ * 无法通知到本节点，按保存的校验值回答304会让客户端一直使用过期数据。
+ * 未修改时直接返回304，省去响应的序列化和传输。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Service
+public class EntityTagService {
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder modified = new LongAdder();
+
+    /**
+     * 药品详情资源键
+     */
+    public static String drugKey(Long id) {
+        return "drug:" + id;
+    }
+
+    /**
+     * 条形码查询药品资源键，条形码为空时返回null
+     */
+    public static String barcodeKey(String barcode) {
+        return barcode == null ? null : "barcode:" + barcode;
+    }
+
+    /**
+     * 计算已落库实体的强ETag
+     */
+    public static String compute(Long id, LocalDateTime updatedAt) {
+        long version = updatedAt == null ? 0L : updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "\"" + Long.toHexString(id == null ? 0L : id) + "-" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * 用实体计算出的校验值判断请求是否未修改，同时写入ETag响应头
+     *
+     * @return true表示已设置304响应，调用方直接返回即可
+     */
+    public boolean checkNotModified(String etag, WebRequest request) {
+        if (request.checkNotModified(etag)) {
+            notModified.increment();
+            return true;
+        }
+        modified.increment();
+        return false;
+    }
+
+    /**
+     * 获取条件请求统计
+     */
+    public Map<String, Object> getStats() {
+        long unchanged = notModified.sum();
+        long changed = modified.sum();
+        long total = unchanged + changed;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("notModified", unchanged);
+        stats.put("modified", changed);
+        stats.put("notModifiedRate", total == 0 ? 0D : (double) unchanged / total);
+        return stats;
+    }
+}
@@ -0,0 +1,65 @@
+package com.health.service;
+
+import com.health.config.HttpClientConfig;
+import com.health.config.RestTemplateConfig;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站HTTP连接池监控服务
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Service
+public class HttpClientPoolService {
+
+    @Autowired
+    private PoolingHttpClientConnectionManager httpConnectionManager;
+
+    @Autowired
+    private HttpClientConfig httpClientConfig;
+
+    /**
+     * 获取连接池总体及各目标主机的连接统计
+     * <p>
+     * 配置了连接上限的路由即使尚未建立连接也会列出，max 为连接池对该路由实际生效的上限，
+     * 与 configuredMax 不一致说明配置未匹配到实际路由。
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = toMap(httpConnectionManager.getTotalStats());
+        Map<String, Map<String, Object>> routes = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : httpClientConfig.getRouteMaxConnections().entrySet()) {
+            try {
+                HttpRoute route = RestTemplateConfig.routeOf(entry.getKey());
+                Map<String, Object> routeStats = toMap(httpConnectionManager.getStats(route));
+                routeStats.put("configuredMax", entry.getValue());
+                routes.put(route.getTargetHost().toURI(), routeStats);
+            } catch (URISyntaxException e) {
+                // 无效配置在创建连接池时已记录日志
+            }
+        }
+        for (HttpRoute route : httpConnectionManager.getRoutes()) {
+            routes.computeIfAbsent(route.getTargetHost().toURI(), key -> toMap(httpConnectionManager.getStats(route)));
+        }
+        stats.put("routes", routes);
+        return stats;
+    }
+
+    private Map<String, Object> toMap(PoolStats poolStats) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("leased", poolStats.getLeased());
+        map.put("available", poolStats.getAvailable());
+        map.put("pending", poolStats.getPending());
+        map.put("max", poolStats.getMax());
+        return map;
+    }
+}
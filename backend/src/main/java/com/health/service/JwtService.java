@@ -0,0 +1,278 @@
+package com.health.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.health.common.ResultCode;
+import com.health.config.JwtConfig;
+import com.health.entity.User;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JWT令牌服务
+ * <p>
+ * 登录时签发以用户ID为 subject 的 HS256 令牌，请求校验只做验签和过期判断，不访问数据库。
+ * 验签成功的令牌按完整令牌串缓存解析结果，同一令牌的后续请求跳过HMAC计算；以完整令牌而非签名段为键，
+ * 避免拼接他人签名和篡改的载荷命中缓存。
+ * <p>
+ * 被禁用或删除的用户在Redis中写入吊销标记（每个用户一个键，过期时间等于令牌有效期：届时旧令牌已全部过期，
+ * 禁用用户也无法登录获取新令牌），所有实例共享且重启不丢失，其令牌无论是否命中验签缓存都被拒绝。
+ * 各实例对吊销查询结果做短时本地缓存，避免每个请求都访问Redis；本实例的吊销、恢复立即生效，
+ * 其他实例最多延迟一个本地缓存周期。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class JwtService {
+
+    @Autowired
+    private JwtConfig jwtConfig;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+
+    /**
+     * 已验签的令牌，值为解析出的用户ID和过期时间
+     */
+    private LRUCache<String, VerifiedToken> verified;
+
+    /**
+     * 用户是否被吊销的本地短时缓存
+     */
+    private LRUCache<Long, Boolean> revocations;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder expiredRejects = new LongAdder();
+    private final LongAdder invalidRejects = new LongAdder();
+    private final LongAdder revokedRejects = new LongAdder();
+    private final LongAdder revocationLookups = new LongAdder();
+    private final LongAdder revocationErrors = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (jwtConfig.getSecret() == null || jwtConfig.getSecret().isEmpty()) {
+            throw new IllegalStateException("未配置 health.jwt.secret");
+        }
+        algorithm = Algorithm.HMAC256(jwtConfig.getSecret());
+        verifier = JWT.require(algorithm).build();
+        verified = CacheUtil.newLRUCache(jwtConfig.getVerifiedCacheSize());
+        revocations = CacheUtil.newLRUCache(jwtConfig.getVerifiedCacheSize(), jwtConfig.getRevocationCacheMs());
+    }
+
+    /**
+     * 为用户签发令牌
+     */
+    public String issue(User user) {
+        long now = System.currentTimeMillis();
+        String token = JWT.create()
+                .withSubject(String.valueOf(user.getId()))
+                .withIssuedAt(new Date(now))
+                .withExpiresAt(new Date(now + TimeUnit.SECONDS.toMillis(jwtConfig.getExpiration())))
+                .sign(algorithm);
+        issued.increment();
+        return token;
+    }
+
+    /**
+     * 校验令牌
+     */
+    public Verification verify(String token) {
+        if (token == null || token.isEmpty()) {
+            invalidRejects.increment();
+            return Verification.failed(ResultCode.USER_TOKEN_INVALID);
+        }
+        VerifiedToken entry = verified.get(token, false);
+        if (entry != null) {
+            cacheHits.increment();
+        } else {
+            entry = decode(token);
+            if (entry.failure != null) {
+                return Verification.failed(entry.failure);
+            }
+            verified.put(token, entry);
+        }
+
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            verified.remove(token);
+            expiredRejects.increment();
+            return Verification.failed(ResultCode.USER_TOKEN_EXPIRED);
+        }
+        if (isRevoked(entry.userId)) {
+            revokedRejects.increment();
+            return Verification.failed(ResultCode.USER_DISABLED);
+        }
+        return Verification.success(entry.userId);
+    }
+
+    /**
+     * 吊销用户的全部令牌（禁用、删除用户的事务提交后调用）
+     * <p>
+     * 写入Redis失败时只记录错误，不向已提交的调用方抛出；本实例仍按本地缓存拒绝该用户的令牌。
+     */
+    public void revoke(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        revocations.put(userId, Boolean.TRUE);
+        try {
+            stringRedisTemplate.opsForValue().set(revokedKey(userId), String.valueOf(System.currentTimeMillis()),
+                    jwtConfig.getExpiration(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            revocationErrors.increment();
+            log.error("写入令牌吊销标记失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 撤销吊销（用户恢复正常的事务提交后调用）
+     */
+    public void restore(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        revocations.remove(userId);
+        try {
+            stringRedisTemplate.delete(revokedKey(userId));
+        } catch (Exception e) {
+            revocationErrors.increment();
+            log.error("删除令牌吊销标记失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 获取令牌校验统计
+     */
+    public Map<String, Object> getStats() {
+        long hits = cacheHits.sum();
+        long misses = verifications.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", jwtConfig.isEnabled());
+        stats.put("issued", issued.sum());
+        stats.put("cacheHits", hits);
+        stats.put("verifications", misses);
+        stats.put("cacheHitRate", hits + misses == 0 ? 0D : (double) hits / (hits + misses));
+        stats.put("cacheSize", verified.size());
+        stats.put("expiredRejects", expiredRejects.sum());
+        stats.put("invalidRejects", invalidRejects.sum());
+        stats.put("revokedRejects", revokedRejects.sum());
+        stats.put("revocationLookups", revocationLookups.sum());
+        stats.put("revocationErrors", revocationErrors.sum());
+        return stats;
+    }
+
+    /**
+     * 用户是否被吊销：先查本地短时缓存，未命中再查Redis；Redis不可用时放行，不因缓存故障拒绝所有请求
+     */
+    private boolean isRevoked(Long userId) {
+        Boolean cached = revocations.get(userId, false);
+        if (cached != null) {
+            return cached;
+        }
+        revocationLookups.increment();
+        try {
+            boolean revoked = Boolean.TRUE.equals(stringRedisTemplate.hasKey(revokedKey(userId)));
+            revocations.put(userId, revoked);
+            return revoked;
+        } catch (Exception e) {
+            revocationErrors.increment();
+            log.warn("查询令牌吊销状态失败: userId={}", userId, e);
+            return false;
+        }
+    }
+
+    private String revokedKey(Long userId) {
+        return jwtConfig.getRevokedKeyPrefix() + userId;
+    }
+
+    private VerifiedToken decode(String token) {
+        verifications.increment();
+        try {
+            DecodedJWT jwt = verifier.verify(token);
+            Date expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                invalidRejects.increment();
+                return VerifiedToken.failed(ResultCode.USER_TOKEN_INVALID);
+            }
+            return new VerifiedToken(Long.parseLong(jwt.getSubject()), expiresAt.getTime(), null);
+        } catch (TokenExpiredException e) {
+            expiredRejects.increment();
+            return VerifiedToken.failed(ResultCode.USER_TOKEN_EXPIRED);
+        } catch (JWTVerificationException | NumberFormatException e) {
+            invalidRejects.increment();
+            return VerifiedToken.failed(ResultCode.USER_TOKEN_INVALID);
+        }
+    }
+
+    /**
+     * 令牌校验结果，成功时 userId 非空，失败时 failure 为原因
+     */
+    public static class Verification {
+
+        private final Long userId;
+        private final ResultCode failure;
+
+        private Verification(Long userId, ResultCode failure) {
+            this.userId = userId;
+            this.failure = failure;
+        }
+
+        static Verification success(Long userId) {
+            return new Verification(userId, null);
+        }
+
+        static Verification failed(ResultCode failure) {
+            return new Verification(null, failure);
+        }
+
+        public boolean isValid() {
+            return userId != null;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public ResultCode getFailure() {
+            return failure;
+        }
+    }
+
+    private static final class VerifiedToken {
+
+        final Long userId;
+        final long expiresAt;
+        final ResultCode failure;
+
+        VerifiedToken(Long userId, long expiresAt, ResultCode failure) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.failure = failure;
+        }
+
+        static VerifiedToken failed(ResultCode failure) {
+            return new VerifiedToken(null, 0L, failure);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.health.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.health.config.PopularDrugConfig;
+import com.health.entity.Drug;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热门药品实时统计
+ * <p>
+ * 由条形码查询、详情浏览和搜索结果驱动，每个时间窗口维护一个 Space-Saving 摘要，
+ * 只跟踪固定数量的药品ID，内存占用与访问量无关。计数按指数衰减（时间常数即窗口长度），
+ * 越久以前的访问权重越低，从而近似"最近一小时/一天/一周"的热度。
+ * 摘要定期写入Redis作为检查点，重启后恢复。药品删除或下架时从摘要中移除，调用方按ID回表时仍需过滤状态。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class PopularDrugTracker {
+
+    /**
+     * 访问来源权重
+     */
+    public static final double WEIGHT_BARCODE = 1.0;
+    public static final double WEIGHT_DETAIL = 1.0;
+    public static final double WEIGHT_SEARCH = 0.2;
+
+    @Autowired
+    private PopularDrugConfig popularDrugConfig;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DrugSuggestService drugSuggestService;
+
+    private final Map<Window, DecayingSpaceSaving> summaries = new EnumMap<>(Window.class);
+
+    /**
+     * 统计时间窗口
+     */
+    public enum Window {
+        HOUR(3600L),
+        DAY(86400L),
+        WEEK(604800L);
+
+        private final long seconds;
+
+        Window(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public static Window of(String value) {
+            for (Window window : values()) {
+                if (window.name().equalsIgnoreCase(value)) {
+                    return window;
+                }
+            }
+            return DAY;
+        }
+    }
+
+    /**
+     * 启动完成后从检查点恢复
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        for (Window window : Window.values()) {
+            DecayingSpaceSaving summary = new DecayingSpaceSaving(popularDrugConfig.getCapacity(), window.seconds);
+            try {
+                String json = stringRedisTemplate.opsForValue().get(popularDrugConfig.getRedisKeyPrefix() + window.name());
+                if (json != null) {
+                    summary.restore(JSON.parseArray(json, CheckpointEntry.class));
+                }
+            } catch (Exception e) {
+                log.warn("恢复热门药品检查点失败: window={}", window, e);
+            }
+            synchronized (summaries) {
+                summaries.put(window, summary);
+            }
+        }
+        log.info("热门药品统计已恢复: tracked={}", summary(Window.WEEK) == null ? 0 : summary(Window.WEEK).size());
+    }
+
+    /**
+     * 记录一次药品访问
+     */
+    public void record(Drug drug, double weight) {
+        if (drug == null || drug.getId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Window window : Window.values()) {
+            DecayingSpaceSaving summary = summary(window);
+            if (summary != null) {
+                summary.offer(drug.getId(), weight, now);
+            }
+        }
+    }
+
+    /**
+     * 移除药品（删除、下架时调用）
+     */
+    public void remove(Long drugId) {
+        if (drugId == null) {
+            return;
+        }
+        for (Window window : Window.values()) {
+            DecayingSpaceSaving summary = summary(window);
+            if (summary != null) {
+                summary.remove(drugId);
+            }
+        }
+    }
+
+    /**
+     * 获取窗口内最热门的药品ID，按热度倒序，尚无统计数据时返回空列表
+     */
+    public List<Long> top(Window window, int limit) {
+        DecayingSpaceSaving summary = summary(window);
+        if (summary == null) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Counter counter : summary.top(limit)) {
+            ids.add(counter.drugId);
+        }
+        return ids;
+    }
+
+    /**
+     * 定时写检查点，并把周热度同步为联想前缀树的排序权重
+     */
+    @Scheduled(fixedDelayString = "${health.popular.checkpoint-interval-ms:300000}",
+            initialDelayString = "${health.popular.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        for (Window window : Window.values()) {
+            DecayingSpaceSaving summary = summary(window);
+            if (summary == null) {
+                continue;
+            }
+            try {
+                stringRedisTemplate.opsForValue().set(popularDrugConfig.getRedisKeyPrefix() + window.name(),
+                        JSON.toJSONString(summary.snapshot()));
+            } catch (Exception e) {
+                log.warn("写入热门药品检查点失败: window={}", window, e);
+            }
+        }
+
+        DecayingSpaceSaving week = summary(Window.WEEK);
+        if (week != null && drugSuggestService.isReady()) {
+            Map<Long, Long> weights = new LinkedHashMap<>();
+            for (Counter counter : week.top(popularDrugConfig.getSuggestWeightTopN())) {
+                weights.put(counter.drugId, Math.round(counter.count * 100));
+            }
+            drugSuggestService.updateWeights(weights);
+        }
+    }
+
+    /**
+     * 关闭前写一次检查点
+     */
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+
+    private DecayingSpaceSaving summary(Window window) {
+        synchronized (summaries) {
+            return summaries.get(window);
+        }
+    }
+
+    /**
+     * 检查点条目
+     */
+    @Data
+    public static class CheckpointEntry {
+
+        private Long drugId;
+
+        /**
+         * 衰减到写检查点时刻的计数
+         */
+        private double count;
+
+        private double error;
+
+        private long timestamp;
+    }
+
+    /**
+     * 单个药品的计数，index 为其在最小堆中的位置
+     */
+    private static class Counter {
+
+        private long drugId;
+        private double count;
+        private double error;
+        private int index;
+
+        Counter(long drugId, double count, double error) {
+            this.drugId = drugId;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 带前向衰减的 Space-Saving 摘要
+     * <p>
+     * 每次访问的增量按 exp((t - landmark) / tau) 放大而非衰减已有计数，
+     * 排序只比较相对大小，因此无需定期遍历衰减；增量过大时整体缩放并移动基准时间。
+     * <p>
+     * 计数按最小堆组织（Stream-Summary 的索引堆实现）：计数只增不减，增加后下沉即可；
+     * 摘要已满时直接替换堆顶的最小计数，单次访问 O(log n)。整体缩放不改变相对顺序，堆无需调整。
+     */
+    private static class DecayingSpaceSaving {
+
+        private static final double MAX_EXPONENT = 50;
+
+        private final int capacity;
+        private final double tauMillis;
+        private final Map<Long, Counter> counters = new HashMap<>();
+        private final Counter[] heap;
+        private int size;
+        private long landmark = System.currentTimeMillis();
+
+        DecayingSpaceSaving(int capacity, long tauSeconds) {
+            this.capacity = capacity;
+            this.tauMillis = tauSeconds * 1000D;
+            this.heap = new Counter[capacity];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void offer(long drugId, double weight, long now) {
+            double exponent = (now - landmark) / tauMillis;
+            if (exponent > MAX_EXPONENT) {
+                rescale(now);
+                exponent = 0;
+            }
+            double increment = weight * Math.exp(exponent);
+
+            Counter counter = counters.get(drugId);
+            if (counter != null) {
+                counter.count += increment;
+                siftDown(counter.index);
+                return;
+            }
+            if (size < capacity) {
+                add(new Counter(drugId, increment, 0));
+                return;
+            }
+            // 摘要已满：替换计数最小的药品，新药品继承其计数作为误差上界
+            Counter min = heap[0];
+            counters.remove(min.drugId);
+            min.drugId = drugId;
+            min.error = min.count;
+            min.count += increment;
+            counters.put(drugId, min);
+            siftDown(0);
+        }
+
+        synchronized void remove(long drugId) {
+            Counter counter = counters.remove(drugId);
+            if (counter == null) {
+                return;
+            }
+            int index = counter.index;
+            Counter last = heap[--size];
+            heap[size] = null;
+            if (index < size) {
+                place(last, index);
+                siftDown(index);
+                siftUp(last.index);
+            }
+        }
+
+        /**
+         * 按衰减后的计数返回前limit个，计数已换算到当前时刻
+         */
+        synchronized List<Counter> top(int limit) {
+            double scale = Math.exp(-(System.currentTimeMillis() - landmark) / tauMillis);
+            List<Counter> all = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                all.add(heap[i]);
+            }
+            all.sort((a, b) -> Double.compare(b.count, a.count));
+            List<Counter> result = new ArrayList<>(Math.min(limit, all.size()));
+            for (int i = 0; i < all.size() && i < limit; i++) {
+                Counter c = all.get(i);
+                result.add(new Counter(c.drugId, c.count * scale, c.error * scale));
+            }
+            return result;
+        }
+
+        synchronized List<CheckpointEntry> snapshot() {
+            long now = System.currentTimeMillis();
+            List<CheckpointEntry> entries = new ArrayList<>(size);
+            for (Counter c : top(capacity)) {
+                CheckpointEntry entry = new CheckpointEntry();
+                entry.setDrugId(c.drugId);
+                entry.setCount(c.count);
+                entry.setError(c.error);
+                entry.setTimestamp(now);
+                entries.add(entry);
+            }
+            return entries;
+        }
+
+        synchronized void restore(List<CheckpointEntry> entries) {
+            long now = System.currentTimeMillis();
+            landmark = now;
+            counters.clear();
+            Arrays.fill(heap, null);
+            size = 0;
+            for (CheckpointEntry entry : entries) {
+                if (entry.getDrugId() == null || counters.containsKey(entry.getDrugId()) || size >= capacity) {
+                    continue;
+                }
+                // 补上检查点之后停机期间的衰减
+                double scale = Math.exp(-(now - entry.getTimestamp()) / tauMillis);
+                add(new Counter(entry.getDrugId(), entry.getCount() * scale, entry.getError() * scale));
+            }
+        }
+
+        private void add(Counter counter) {
+            counters.put(counter.drugId, counter);
+            place(counter, size++);
+            siftUp(counter.index);
+        }
+
+        private void rescale(long now) {
+            double scale = Math.exp(-(now - landmark) / tauMillis);
+            for (int i = 0; i < size; i++) {
+                heap[i].count *= scale;
+                heap[i].error *= scale;
+            }
+            landmark = now;
+        }
+
+        private void siftUp(int index) {
+            Counter counter = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= counter.count) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(counter, index);
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && heap[right].count < heap[child].count) {
+                    child = right;
+                }
+                if (counter.count <= heap[child].count) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(counter, index);
+        }
+
+        private void place(Counter counter, int index) {
+            heap[index] = counter;
+            counter.index = index;
+        }
+    }
+}
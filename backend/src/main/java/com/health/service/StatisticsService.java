@@ -0,0 +1,243 @@
+package com.health.service;
+
+import com.health.mapper.DrugMapper;
+import com.health.mapper.UserMapper;
+import com.health.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 统计数据快照服务
+ * <p>
+ * 药品、用户的统计数据常驻内存，由写路径增量更新，管理端统计接口直接读取。
+ * 定时任务从数据库重新统计一次进行校准，修正增量更新可能产生的偏差（如直接改库）。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class StatisticsService {
+
+    /**
+     * 活跃用户统计窗口，单位天
+     */
+    public static final int ACTIVE_DAYS = 7;
+
+    @Autowired
+    private DrugMapper drugMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    private final AtomicLong totalDrugs = new AtomicLong();
+    private final AtomicLong todayNewDrugs = new AtomicLong();
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong todayNewUsers = new AtomicLong();
+
+    /**
+     * 窗口内活跃的用户ID
+     */
+    private final Set<Long> activeUserIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 由登录记录的用户活跃日期，校准时与数据库结果合并
+     */
+    private final Map<Long, LocalDate> loginActivity = new ConcurrentHashMap<>();
+
+    private volatile LocalDate snapshotDate = LocalDate.now();
+
+    private volatile boolean ready = false;
+
+    /**
+     * 校准期间会查询数据库，使用显式锁而非synchronized，避免虚拟线程被钉住
+     */
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    /**
+     * 启动完成后立即校准一次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * 定时从数据库校准
+     */
+    @Scheduled(fixedDelayString = "${health.statistics.reconcile-interval-ms:600000}",
+            initialDelayString = "${health.statistics.reconcile-interval-ms:600000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 每天零点重置今日新增并重新校准
+     */
+    @Scheduled(cron = "0 0 0 * * ?")
+    public void dailyReset() {
+        rollDateIfNeeded();
+        reconcile();
+    }
+
+    /**
+     * 统计快照是否可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getTotalDrugs() {
+        return totalDrugs.get();
+    }
+
+    public long getTodayNewDrugs() {
+        rollDateIfNeeded();
+        return todayNewDrugs.get();
+    }
+
+    public long getTotalUsers() {
+        return totalUsers.get();
+    }
+
+    public long getTodayNewUsers() {
+        rollDateIfNeeded();
+        return todayNewUsers.get();
+    }
+
+    public long getActiveUsers() {
+        return activeUserIds.size();
+    }
+
+    /**
+     * 新增药品，在事务中调用时于提交后生效
+     */
+    public void onDrugsCreated(int count) {
+        TransactionUtils.afterCommit(() -> {
+            rollDateIfNeeded();
+            totalDrugs.addAndGet(count);
+            todayNewDrugs.addAndGet(count);
+        });
+    }
+
+    /**
+     * 删除药品，在事务中调用时于提交后生效
+     */
+    public void onDrugDeleted(LocalDateTime createdAt) {
+        TransactionUtils.afterCommit(() -> {
+            rollDateIfNeeded();
+            totalDrugs.decrementAndGet();
+            if (isToday(createdAt)) {
+                todayNewDrugs.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * 新增用户，在事务中调用时于提交后生效
+     */
+    public void onUserCreated() {
+        TransactionUtils.afterCommit(() -> {
+            rollDateIfNeeded();
+            totalUsers.incrementAndGet();
+            todayNewUsers.incrementAndGet();
+        });
+    }
+
+    /**
+     * 删除用户，在事务中调用时于提交后生效
+     */
+    public void onUserDeleted(Long userId, LocalDateTime createdAt) {
+        TransactionUtils.afterCommit(() -> {
+            rollDateIfNeeded();
+            totalUsers.decrementAndGet();
+            if (isToday(createdAt)) {
+                todayNewUsers.decrementAndGet();
+            }
+            activeUserIds.remove(userId);
+            loginActivity.remove(userId);
+        });
+    }
+
+    /**
+     * 记录用户活跃（登录）
+     */
+    public void onUserActive(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        loginActivity.put(userId, LocalDate.now());
+        activeUserIds.add(userId);
+    }
+
+    /**
+     * 从数据库重新统计并覆盖快照
+     */
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        reconcileLock.lock();
+        try {
+            long drugs = nullToZero(drugMapper.countTotalDrugs());
+            long newDrugs = nullToZero(drugMapper.countTodayNewDrugs());
+            long users = nullToZero(userMapper.selectCount(null, null));
+            long newUsers = nullToZero(userMapper.countTodayNewUsers());
+            Set<Long> active = ConcurrentHashMap.newKeySet();
+            active.addAll(userMapper.selectActiveUserIds(ACTIVE_DAYS));
+
+            // 合并窗口内的登录活跃记录，并清理过期记录
+            LocalDate windowStart = LocalDate.now().minusDays(ACTIVE_DAYS);
+            loginActivity.entrySet().removeIf(entry -> entry.getValue().isBefore(windowStart));
+            active.addAll(loginActivity.keySet());
+
+            // 覆盖快照与日期切换互斥，持有监视器期间不做任何IO
+            synchronized (this) {
+                snapshotDate = LocalDate.now();
+                totalDrugs.set(drugs);
+                todayNewDrugs.set(newDrugs);
+                totalUsers.set(users);
+                todayNewUsers.set(newUsers);
+            }
+            activeUserIds.retainAll(active);
+            activeUserIds.addAll(active);
+            ready = true;
+            log.debug("统计快照校准完成: cost={}ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("统计快照校准失败", e);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void rollDateIfNeeded() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(snapshotDate)) {
+            synchronized (this) {
+                if (!today.equals(snapshotDate)) {
+                    todayNewDrugs.set(0);
+                    todayNewUsers.set(0);
+                    snapshotDate = today;
+                }
+            }
+        }
+    }
+
+    private boolean isToday(LocalDateTime time) {
+        return time != null && time.toLocalDate().equals(LocalDate.now());
+    }
+
+    private long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+}
@@ -0,0 +1,214 @@
+package com.health.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.bean.BeanUtil;
+import com.health.config.UserCacheConfig;
+import com.health.entity.User;
+import com.health.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户本地缓存服务
+ * <p>
+ * 按ID缓存用户，openid、手机号为指向ID的二级索引。按二级键读取时会校验缓存用户的对应字段仍然一致，
+ * 索引过时（如手机号已修改）视为未命中并清除，不会返回错误的用户。缓存对象读写时都复制，调用方修改返回值不影响缓存。
+ * <p>
+ * 写操作按用户失效ID及新旧openid、手机号。为避免“读到旧数据 - 写入提交并失效 - 旧数据被写回缓存”，
+ * 每次失效递增代数，读库前取得的代数已过期时不写入缓存。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+public class UserCacheService {
+
+    @Autowired
+    private UserCacheConfig userCacheConfig;
+
+    private LRUCache<Long, User> users;
+    private LRUCache<String, Long> openidIndex;
+    private LRUCache<String, Long> phoneIndex;
+
+    /**
+     * 失效代数
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder idHits = new LongAdder();
+    private final LongAdder openidHits = new LongAdder();
+    private final LongAdder phoneHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleIndexes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        long ttl = TimeUnit.SECONDS.toMillis(userCacheConfig.getTtlSeconds());
+        users = CacheUtil.newLRUCache(userCacheConfig.getMaxSize(), ttl);
+        openidIndex = CacheUtil.newLRUCache(userCacheConfig.getMaxSize(), ttl);
+        phoneIndex = CacheUtil.newLRUCache(userCacheConfig.getMaxSize(), ttl);
+    }
+
+    /**
+     * 读库前取得当前代数，传给 {@link #put(User, long)}
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * 按ID读取，未命中返回null
+     */
+    public User getById(Long id) {
+        if (!userCacheConfig.isEnabled() || id == null) {
+            return null;
+        }
+        User user = users.get(id, false);
+        if (user == null) {
+            misses.increment();
+            return null;
+        }
+        idHits.increment();
+        return copy(user);
+    }
+
+    /**
+     * 按openid读取，未命中返回null
+     */
+    public User getByOpenid(String openid) {
+        if (!userCacheConfig.isEnabled() || openid == null) {
+            return null;
+        }
+        User user = resolve(openidIndex, openid);
+        if (user == null || !openid.equals(user.getOpenid())) {
+            return stale(openidIndex, openid, user);
+        }
+        openidHits.increment();
+        return copy(user);
+    }
+
+    /**
+     * 按手机号读取，未命中返回null
+     */
+    public User getByPhone(String phone) {
+        if (!userCacheConfig.isEnabled() || phone == null) {
+            return null;
+        }
+        User user = resolve(phoneIndex, phone);
+        if (user == null || !phone.equals(user.getPhone())) {
+            return stale(phoneIndex, phone, user);
+        }
+        phoneHits.increment();
+        return copy(user);
+    }
+
+    /**
+     * 写入从数据库读到的用户；读库期间发生过失效时放弃写入
+     *
+     * @param stamp 读库前 {@link #stamp()} 的返回值
+     */
+    public void put(User user, long stamp) {
+        if (!userCacheConfig.isEnabled() || user == null || user.getId() == null) {
+            return;
+        }
+        if (generation.get() != stamp) {
+            return;
+        }
+        users.put(user.getId(), copy(user));
+        if (user.getOpenid() != null) {
+            openidIndex.put(user.getOpenid(), user.getId());
+        }
+        if (user.getPhone() != null) {
+            phoneIndex.put(user.getPhone(), user.getId());
+        }
+    }
+
+    /**
+     * 失效用户的缓存及其二级索引
+     * <p>
+     * 传入写操作前的用户数据，缓存中的副本对应的索引一并清除；新值的索引由读取时的字段校验保证不会误命中。
+     * 在事务中调用时，除立即失效外还会在事务提交后再失效一次。
+     */
+    public void evict(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        Long id = user.getId();
+        String openid = user.getOpenid();
+        String phone = user.getPhone();
+        doEvict(id, openid, phone);
+        TransactionUtils.afterCommit(() -> doEvict(id, openid, phone));
+    }
+
+    /**
+     * 获取缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long byId = idHits.sum();
+        long byOpenid = openidHits.sum();
+        long byPhone = phoneHits.sum();
+        long miss = misses.sum();
+        long total = byId + byOpenid + byPhone + miss;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", userCacheConfig.isEnabled());
+        stats.put("idHits", byId);
+        stats.put("openidHits", byOpenid);
+        stats.put("phoneHits", byPhone);
+        stats.put("misses", miss);
+        stats.put("staleIndexes", staleIndexes.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("size", users.size());
+        stats.put("hitRate", total == 0 ? 0D : (double) (byId + byOpenid + byPhone) / total);
+        return stats;
+    }
+
+    private User resolve(LRUCache<String, Long> index, String key) {
+        Long id = index.get(key, false);
+        return id == null ? null : users.get(id, false);
+    }
+
+    private User stale(LRUCache<String, Long> index, String key, User user) {
+        if (user != null) {
+            // 索引指向的用户该字段已变化
+            index.remove(key);
+            staleIndexes.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void doEvict(Long id, String openid, String phone) {
+        generation.incrementAndGet();
+        User cached = users.get(id, false);
+        users.remove(id);
+        removeKey(openidIndex, openid);
+        removeKey(phoneIndex, phone);
+        if (cached != null) {
+            removeKey(openidIndex, cached.getOpenid());
+            removeKey(phoneIndex, cached.getPhone());
+        }
+        evictions.increment();
+    }
+
+    private static void removeKey(LRUCache<String, Long> index, String key) {
+        if (key != null) {
+            index.remove(key);
+        }
+    }
+
+    private static User copy(User user) {
+        return BeanUtil.copyProperties(user, User.class);
+    }
+}
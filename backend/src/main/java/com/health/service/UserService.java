@@ -1,12 +1,16 @@
 package com.health.service;
 
+import com.health.common.CursorPage;
+import com.health.common.SeekCursor;
 import com.health.entity.User;
 import com.health.mapper.UserMapper;
+import com.health.util.TransactionUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,14 +26,33 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
     
+    @Autowired
+    private StatisticsService statisticsService;
+    
+    
+    @Autowired
+    private UserCacheService userCacheService;
+    
+    @Autowired
+    private JwtService jwtService;
+    
     /**
      * 根据ID查询用户
+     * <p>
+     * 按ID、openid、手机号的查询都经过本地用户缓存；事务内的写操作直接读库，不写入缓存。
      */
     public User getUserById(Long id) {
         if (id == null) {
             return null;
         }
-        return userMapper.selectById(id);
+        User cached = userCacheService.getById(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = userCacheService.stamp();
+        User user = userMapper.selectById(id);
+        userCacheService.put(user, stamp);
+        return user;
     }
     
     /**
@@ -39,7 +62,14 @@ public class UserService {
         if (openid == null || openid.trim().isEmpty()) {
             return null;
         }
-        return userMapper.selectByOpenid(openid);
+        User cached = userCacheService.getByOpenid(openid);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = userCacheService.stamp();
+        User user = userMapper.selectByOpenid(openid);
+        userCacheService.put(user, stamp);
+        return user;
     }
     
     /**
@@ -49,7 +79,14 @@ public class UserService {
         if (phone == null || phone.trim().isEmpty()) {
             return null;
         }
-        return userMapper.selectByPhone(phone);
+        User cached = userCacheService.getByPhone(phone);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = userCacheService.stamp();
+        User user = userMapper.selectByPhone(phone);
+        userCacheService.put(user, stamp);
+        return user;
     }
     
     /**
@@ -84,6 +121,7 @@ public class UserService {
         
         int result = userMapper.insert(user);
         if (result > 0) {
+            statisticsService.onUserCreated();
             log.info("创建用户成功: userId={}, openid={}", user.getId(), user.getOpenid());
             return user;
         } else {
@@ -116,6 +154,7 @@ public class UserService {
         
         int result = userMapper.updateById(user);
         if (result > 0) {
+            userCacheService.evict(existingUser);
             log.info("更新用户信息成功: userId={}", user.getId());
             return userMapper.selectById(user.getId());
         } else {
@@ -139,6 +178,9 @@ public class UserService {
         
         int result = userMapper.deleteById(id);
         if (result > 0) {
+            userCacheService.evict(user);
+            TransactionUtils.afterCommit(() -> jwtService.revoke(id));
+            statisticsService.onUserDeleted(id, user.getCreatedAt());
             log.info("删除用户成功: userId={}", id);
             return true;
         } else {
@@ -162,6 +204,12 @@ public class UserService {
         
         int result = userMapper.updateStatus(id, status);
         if (result > 0) {
+            userCacheService.evict(user);
+            if (User.Status.DISABLED.getCode().equals(status)) {
+                TransactionUtils.afterCommit(() -> jwtService.revoke(id));
+            } else {
+                TransactionUtils.afterCommit(() -> jwtService.restore(id));
+            }
             log.info("更新用户状态成功: userId={}, status={}", id, status);
             return true;
         } else {
@@ -184,6 +232,45 @@ public class UserService {
         return userMapper.selectList(nickname, status, offset, size);
     }
     
+    /**
+     * 游标方式查询用户列表，按 (created_at, id) 倒序seek，不需要跳过前面的行
+     *
+     * @param cursorToken 上一页返回的续查令牌，空串表示第一页
+     * @throws IllegalArgumentException 游标无效
+     */
+    public CursorPage<User> getUserListByCursor(String nickname, Integer status, String cursorToken,
+                                                Integer size, CursorPage.CountMode countMode) {
+        if (size == null || size < 1) {
+            size = 10;
+        }
+        SeekCursor cursor = SeekCursor.decode(cursorToken);
+        if (cursor != null && !cursor.isCreatedOrder()) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        
+        List<User> users = userMapper.selectListAfter(nickname, status,
+                cursor == null ? null : cursor.getCreatedAt(), cursor == null ? null : cursor.getId(), size + 1);
+        CursorPage<User> page = new CursorPage<>();
+        boolean hasMore = users.size() > size;
+        if (hasMore) {
+            users = new ArrayList<>(users.subList(0, size));
+            User last = users.get(users.size() - 1);
+            page.setNextCursor(SeekCursor.ofCreated(last.getCreatedAt(), last.getId()).encode());
+        }
+        page.setList(users);
+        page.setHasMore(hasMore);
+        
+        boolean noFilter = (nickname == null || nickname.trim().isEmpty()) && status == null;
+        if (countMode == CursorPage.CountMode.ESTIMATE && noFilter) {
+            page.setTotal(userMapper.estimateTotalUsers());
+            page.setTotalEstimated(true);
+        } else if (countMode != CursorPage.CountMode.NONE) {
+            page.setTotal(userMapper.selectCount(nickname, status));
+            page.setTotalEstimated(false);
+        }
+        return page;
+    }
+    
     /**
      * 查询用户总数
      */
@@ -191,6 +278,16 @@ public class UserService {
         return userMapper.selectCount(nickname, status);
     }
     
+    /**
+     * 统计用户总数
+     */
+    public Long getTotalUserCount() {
+        if (statisticsService.isReady()) {
+            return statisticsService.getTotalUsers();
+        }
+        return userMapper.selectCount(null, null);
+    }
+    
     /**
      * 批量查询用户
      */
@@ -205,6 +302,9 @@ public class UserService {
      * 统计今日新增用户数
      */
     public Long getTodayNewUserCount() {
+        if (statisticsService.isReady()) {
+            return statisticsService.getTodayNewUsers();
+        }
         return userMapper.countTodayNewUsers();
     }
     
@@ -215,6 +315,9 @@ public class UserService {
         if (days == null || days < 1) {
             days = 7; // 默认7天
         }
+        if (days == StatisticsService.ACTIVE_DAYS && statisticsService.isReady()) {
+            return statisticsService.getActiveUsers();
+        }
         return userMapper.countActiveUsers(days);
     }
 }
\ No newline at end of file
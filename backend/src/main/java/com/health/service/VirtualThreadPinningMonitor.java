@@ -0,0 +1,130 @@
+package com.health.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 虚拟线程钉住（pinning）监控
+ * <p>
+ * 仅在虚拟线程模式下启用。通过JFR事件 jdk.VirtualThreadPinned 监听虚拟线程在 synchronized 块
+ * 或本地方法中阻塞、导致载体线程被占用的情况，按发生位置计数，每个位置首次出现时打印调用栈，
+ * 用于确认药品API、微信登录等阻塞路径没有钉住载体线程。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.health.";
+    private static final int LOGGED_FRAMES = 12;
+
+    @Value("${health.virtual-threads.pinned-threshold-ms:20}")
+    private long pinnedThresholdMs;
+
+    private RecordingStream stream;
+
+    private final Map<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private final LongAdder pinnedTotal = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(pinnedThresholdMs)).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            log.info("虚拟线程钉住监控已启动: threshold={}ms", pinnedThresholdMs);
+        } catch (Exception e) {
+            log.warn("虚拟线程钉住监控启动失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * 获取钉住统计，按发生位置（首个应用代码栈帧）分组
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> sites = new LinkedHashMap<>();
+        pinnedBySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> sites.put(entry.getKey(), entry.getValue().sum()));
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", stream != null);
+        stats.put("thresholdMs", pinnedThresholdMs);
+        stats.put("pinnedTotal", pinnedTotal.sum());
+        stats.put("sites", sites);
+        return stats;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTotal.increment();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+        String site = siteOf(frames);
+
+        LongAdder counter = pinnedBySite.get(site);
+        if (counter == null) {
+            LongAdder created = new LongAdder();
+            counter = pinnedBySite.putIfAbsent(site, created);
+            if (counter == null) {
+                counter = created;
+                log.warn("检测到虚拟线程被钉住: site={}, duration={}ms\n{}",
+                        site, event.getDuration().toMillis(), format(frames));
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * 优先取第一个应用代码栈帧作为位置，没有时取栈顶
+     */
+    private String siteOf(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : describe(frames.get(0));
+    }
+
+    private String format(List<RecordedFrame> frames) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < frames.size() && i < LOGGED_FRAMES; i++) {
+            sb.append("\tat ").append(describe(frames.get(i))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
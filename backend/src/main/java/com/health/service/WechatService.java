@@ -29,6 +29,16 @@ public class WechatService {
     @Autowired
     private RestTemplate restTemplate;
     
+    @Autowired
+    private StatisticsService statisticsService;
+    
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private UserCacheService userCacheService;
+    
     /**
      * 微信小程序登录
      * 
@@ -67,7 +77,7 @@ public class WechatService {
             }
             
             // 查询用户是否已存在
-            User user = userMapper.selectByOpenid(openid);
+            User user = userService.getUserByOpenid(openid);
             
             if (user == null) {
                 // 创建新用户
@@ -77,16 +87,19 @@ public class WechatService {
                 user.setStatus(User.Status.ACTIVE.getValue());
                 
                 userMapper.insert(user);
+                statisticsService.onUserCreated();
                 log.info("创建新用户: openid={}, userId={}", openid, user.getId());
             } else {
                 // 更新unionid（如果有）
                 if (unionid != null && !unionid.equals(user.getUnionid())) {
                     user.setUnionid(unionid);
                     userMapper.updateById(user);
+                    userCacheService.evict(user);
                 }
                 log.info("用户登录: openid={}, userId={}", openid, user.getId());
             }
             
+            statisticsService.onUserActive(user.getId());
             return user;
             
         } catch (Exception e) {
@@ -0,0 +1,96 @@
+package com.health.util;
+
+/**
+ * 自适应并发上限（梯度算法）
+ * <p>
+ * 以长期平均响应时间作为无排队基线，用 基线/本次响应时间 作为梯度（0.5~1.0）缩放当前上限，
+ * 再加上 sqrt(上限) 的排队余量：下游变慢时上限随之收缩，恢复后逐步放大。
+ * 调用失败或超时按 0.9 倍回退。并发远未达到上限时不再放大，避免上限虚高。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * 申请一个并发名额
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * 归还未实际使用的名额，不调整上限
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    /**
+     * 归还名额并根据本次调用结果调整上限
+     *
+     * @param rttNanos 本次调用耗时
+     * @param dropped  调用失败或超时
+     */
+    public synchronized void release(long rttNanos, boolean dropped) {
+        int concurrency = inFlight;
+        inFlight--;
+
+        double newLimit;
+        if (dropped) {
+            newLimit = limit * BACKOFF_RATIO;
+        } else {
+            if (longRttNanos == 0) {
+                longRttNanos = rttNanos;
+            } else {
+                longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+            }
+            // 基线远高于本次耗时说明下游已恢复，基线加速回落
+            if (longRttNanos > rttNanos * 2.0) {
+                longRttNanos *= 0.95;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / Math.max(1L, rttNanos)));
+            if (gradient >= 1.0 && concurrency < limit / 2) {
+                return;
+            }
+            newLimit = limit * gradient + Math.sqrt(limit);
+        }
+        limit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getLongRttMillis() {
+        return (long) (longRttNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,85 @@
+package com.health.util;
+
+/**
+ * 商品条形码校验工具
+ * <p>
+ * 支持 EAN-13、EAN-8、UPC-A（12位）和 UPC-E（8位，按展开后的 UPC-A 计算校验位），
+ * 只做格式和校验位计算，不涉及任何IO，用于在查询缓存、数据库和API之前拦截扫错、输错的条形码。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public final class BarcodeUtils {
+
+    private BarcodeUtils() {
+    }
+
+    /**
+     * 是否为校验位正确的 EAN-13、EAN-8、UPC-A 或 UPC-E 条形码
+     */
+    public static boolean isValidGtin(String barcode) {
+        if (barcode == null) {
+            return false;
+        }
+        int length = barcode.length();
+        if (length != 8 && length != 12 && length != 13) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (length == 8) {
+            return hasValidCheckDigit(barcode) || isValidUpcE(barcode);
+        }
+        return hasValidCheckDigit(barcode);
+    }
+
+    /**
+     * GTIN 通用校验位算法：从校验位左边一位起向左，奇数位乘3、偶数位乘1，和补足到10的倍数
+     */
+    private static boolean hasValidCheckDigit(String digits) {
+        int last = digits.length() - 1;
+        int sum = 0;
+        for (int i = last - 1, weight = 3; i >= 0; i--, weight = 4 - weight) {
+            sum += (digits.charAt(i) - '0') * weight;
+        }
+        return (10 - sum % 10) % 10 == digits.charAt(last) - '0';
+    }
+
+    /**
+     * UPC-E：首位为数字系统（0或1），展开为 UPC-A 后按 UPC-A 计算校验位
+     */
+    private static boolean isValidUpcE(String upcE) {
+        char system = upcE.charAt(0);
+        if (system != '0' && system != '1') {
+            return false;
+        }
+        String body = upcE.substring(1, 7);
+        char check = upcE.charAt(7);
+        String manufacturer;
+        String product;
+        char last = body.charAt(5);
+        switch (last) {
+            case '0', '1', '2' -> {
+                manufacturer = body.substring(0, 2) + last + "00";
+                product = "00" + body.substring(2, 5);
+            }
+            case '3' -> {
+                manufacturer = body.substring(0, 3) + "00";
+                product = "000" + body.substring(3, 5);
+            }
+            case '4' -> {
+                manufacturer = body.substring(0, 4) + "0";
+                product = "0000" + body.charAt(4);
+            }
+            default -> {
+                manufacturer = body.substring(0, 5);
+                product = "0000" + last;
+            }
+        }
+        return hasValidCheckDigit(system + manufacturer + product + check);
+    }
+}
@@ -0,0 +1,152 @@
+package com.health.util;
+
+/**
+ * 基于失败率和慢调用率的熔断器
+ * <p>
+ * 在最近 windowSize 次调用的滑动窗口上统计，调用数达到 minimumCalls 后，
+ * 失败率或慢调用率超过阈值即打开；打开期间直接拒绝，等待 openDurationMillis 后进入半开，
+ * 放行少量试探调用，全部成功则关闭，任一失败或过慢则重新打开。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final byte OUTCOME_SUCCESS = 0;
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallThresholdMillis;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenPermits;
+
+    private final byte[] window;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenIssued;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallThresholdMillis,
+                          long openDurationMillis, int halfOpenPermits) {
+        this.window = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallThresholdMillis = slowCallThresholdMillis;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermits = halfOpenPermits;
+    }
+
+    /**
+     * 申请一次调用许可
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenIssued = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenIssued >= halfOpenPermits) {
+                return false;
+            }
+            halfOpenIssued++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次调用结果
+     */
+    public synchronized void record(boolean success, long latencyMillis) {
+        byte outcome = !success ? OUTCOME_FAILURE
+                : latencyMillis >= slowCallThresholdMillis ? OUTCOME_SLOW : OUTCOME_SUCCESS;
+
+        if (state == State.HALF_OPEN) {
+            if (outcome != OUTCOME_SUCCESS) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenPermits) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 打开前已放行的调用，结果不再计入
+            return;
+        }
+
+        if (recorded == window.length) {
+            byte evicted = window[position];
+            if (evicted == OUTCOME_FAILURE) {
+                failures--;
+            } else if (evicted == OUTCOME_SLOW) {
+                slowCalls--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = outcome;
+        position = (position + 1) % window.length;
+        if (outcome == OUTCOME_FAILURE) {
+            failures++;
+        } else if (outcome == OUTCOME_SLOW) {
+            slowCalls++;
+        }
+
+        if (recorded >= minimumCalls
+                && (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0D : (double) failures / recorded;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return recorded == 0 ? 0D : (double) slowCalls / recorded;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.health.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 当前请求的截止时间
+ * <p>
+ * 由 RequestDeadlineFilter 在请求进入时设置，出站调用据此计算剩余可用时间，
+ * 不会在请求已经无法按时返回时仍等待第三方接口。提交到其他线程的任务需通过
+ * {@link #call(Long, Supplier)} 显式传递。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * 设置当前线程的截止时间（System.nanoTime 基准）
+     */
+    public static void set(long deadlineNanos) {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * 当前线程的截止时间，未设置时返回null
+     */
+    public static Long current() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * 取当前截止时间与 now + timeoutMillis 中较早者
+     */
+    public static long within(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Long current = DEADLINE.get();
+        return current == null ? deadline : Math.min(current, deadline);
+    }
+
+    /**
+     * 剩余可用毫秒数，未设置截止时间时返回defaultMillis
+     */
+    public static long remainingMillis(long defaultMillis) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return defaultMillis;
+        }
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * 在指定截止时间下执行，结束后恢复原值
+     */
+    public static <T> T call(Long deadlineNanos, Supplier<T> supplier) {
+        Long previous = DEADLINE.get();
+        if (deadlineNanos == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadlineNanos);
+        }
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE.remove();
+            } else {
+                DEADLINE.set(previous);
+            }
+        }
+    }
+}
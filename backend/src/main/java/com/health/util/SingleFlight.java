@@ -0,0 +1,57 @@
+package com.health.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 并发请求合并工具
+ * <p>
+ * 同一个key同时只执行一次加载，其余并发调用方等待并共享该次加载的结果。
+ * 加载完成后立即移除，不做结果缓存。
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载，若同key的加载正在进行则等待其结果
+     */
+    public T execute(String key, Supplier<T> loader) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 当前正在进行中的加载数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
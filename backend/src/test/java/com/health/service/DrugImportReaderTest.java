@@ -0,0 +1,212 @@
+package com.health.service;
+
+import com.health.entity.Drug;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DrugImportReader 导入文件解析测试
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+class DrugImportReaderTest {
+
+    @Test
+    void csvQuotedCommaAndNewline() throws IOException {
+        List<DrugImportReader.Record> records = readAll(DrugImportReader.Format.CSV,
+                "name,barcode,manufacturer\n"
+                        + "\"阿莫西林胶囊, 0.25g\",6901234567892,\"华北制药\n股份有限公司\"\n"
+                        + "布洛芬缓释胶囊,6901234567885,中美史克\n");
+
+        assertEquals(2, records.size());
+        Drug first = records.get(0).drug;
+        assertNotNull(first);
+        assertEquals(1, records.get(0).number);
+        assertEquals("阿莫西林胶囊, 0.25g", first.getName());
+        assertEquals("6901234567892", first.getBarcode());
+        assertEquals("华北制药\n股份有限公司", first.getManufacturer());
+        assertEquals(Drug.DataSource.IMPORT.getCode(), first.getDataSource());
+        assertFalse(first.getComplete());
+
+        assertEquals(2, records.get(1).number);
+        assertEquals("布洛芬缓释胶囊", records.get(1).drug.getName());
+    }
+
+    @Test
+    void csvEscapedQuotes() throws IOException {
+        List<DrugImportReader.Record> records = readAll(DrugImportReader.Format.CSV,
+                "name,approval_number,indications\r\n"
+                        + "\"\"\"维C\"\"银翘片\",国药准字Z20000001,\"用于\"\"风热感冒\"\"\"\r\n");
+
+        assertEquals(1, records.size());
+        Drug drug = records.get(0).drug;
+        assertEquals("\"维C\"银翘片", drug.getName());
+        assertEquals("国药准字Z20000001", drug.getApprovalNumber());
+        assertEquals("用于\"风热感冒\"", drug.getIndications());
+        assertTrue(drug.getComplete());
+    }
+
+    @Test
+    void csvUnknownColumnsIgnored() throws IOException {
+        List<DrugImportReader.Record> records = readAll(DrugImportReader.Format.CSV,
+                "\uFEFFName,color,Approval_Number,dosageForm,remark\n"
+                        + "板蓝根颗粒,绿色,国药准字Z11020357,颗粒剂,\"备注, 忽略\"\n"
+                        + "感冒灵颗粒\n");
+
+        assertEquals(2, records.size());
+        Drug drug = records.get(0).drug;
+        assertNotNull(drug);
+        assertEquals("板蓝根颗粒", drug.getName());
+        assertEquals("国药准字Z11020357", drug.getApprovalNumber());
+        assertEquals("颗粒剂", drug.getDosageForm());
+        // 列数少于表头的行按缺失字段校验
+        assertNull(records.get(1).drug);
+        assertEquals("条形码和批准文号至少填写一项", records.get(1).error);
+    }
+
+    @Test
+    void csvHeaderWithoutName() {
+        assertThrows(IllegalArgumentException.class,
+                () -> reader(DrugImportReader.Format.CSV, "barcode,manufacturer\n6901234567892,华北制药\n"));
+        assertThrows(IllegalArgumentException.class, () -> reader(DrugImportReader.Format.CSV, ""));
+    }
+
+    @Test
+    void csvInvalidRowsCarryRecordNumber() throws IOException {
+        String longBarcode = "1".repeat(51);
+        List<DrugImportReader.Record> records = readAll(DrugImportReader.Format.CSV,
+                "name,barcode,price,status\n"
+                        + "阿莫西林胶囊,6901234567892,12.50,1\n"
+                        + "\n"
+                        + ",6901234567885,,\n"
+                        + "布洛芬缓释胶囊,,,\n"
+                        + "\"多行\n名称\"," + longBarcode + ",,\n"
+                        + "维生素C片,6901234567878,abc,\n"
+                        + "维生素C片,6901234567878,-1,\n"
+                        + "维生素C片,6901234567878,,2\n"
+                        + "维生素C片,6901234567878,,0\n");
+
+        assertEquals(8, records.size());
+        assertRecord(records.get(0), 1, null);
+        assertEquals(new BigDecimal("12.50"), records.get(0).drug.getPrice());
+        assertEquals(Integer.valueOf(1), records.get(0).drug.getStatus());
+        // 空行不计数
+        assertRecord(records.get(1), 2, "缺少药品名称");
+        assertRecord(records.get(2), 3, "条形码和批准文号至少填写一项");
+        // 引号内的换行不开始新记录
+        assertRecord(records.get(3), 4, "barcode 超过50个字符");
+        assertRecord(records.get(4), 5, "price 不是有效数字");
+        assertRecord(records.get(5), 6, "price 超出范围");
+        assertRecord(records.get(6), 7, "status 只能是0或1");
+        assertRecord(records.get(7), 8, null);
+        assertEquals(Integer.valueOf(0), records.get(7).drug.getStatus());
+    }
+
+    @Test
+    void csvSkipResumesAfterCheckpoint() throws IOException {
+        String content = "name,barcode\n"
+                + "药品1,6901234567892\n"
+                + "\n"
+                + "\"药品2\n第二行\",6901234567885\n"
+                + ",6901234567878\n"
+                + "药品4,6901234567861\n"
+                + "药品5,6901234567854\n";
+
+        try (DrugImportReader reader = reader(DrugImportReader.Format.CSV, content)) {
+            // 断点之前的记录不校验，校验失败的第3条也计入条数
+            reader.skip(3);
+            DrugImportReader.Record record = reader.next();
+            assertRecord(record, 4, null);
+            assertEquals("药品4", record.drug.getName());
+            assertRecord(reader.next(), 5, null);
+            assertNull(reader.next());
+        }
+
+        try (DrugImportReader reader = reader(DrugImportReader.Format.CSV, content)) {
+            reader.skip(10);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void jsonl() throws IOException {
+        List<DrugImportReader.Record> records = readAll(DrugImportReader.Format.JSONL,
+                "{\"name\":\"阿莫西林胶囊\",\"approval_number\":\"国药准字H13023964\",\"color\":\"red\",\"price\":12.5}\n"
+                        + "\n"
+                        + "{not json\n"
+                        + "{\"name\":\"布洛芬缓释胶囊\",\"status\":3,\"barcode\":\"6901234567885\"}\r\n"
+                        + "{\"name\":\"维生素C片\",\"barcode\":\"6901234567878\"}");
+
+        assertEquals(4, records.size());
+        assertRecord(records.get(0), 1, null);
+        assertEquals("国药准字H13023964", records.get(0).drug.getApprovalNumber());
+        assertEquals(new BigDecimal("12.5"), records.get(0).drug.getPrice());
+        assertRecord(records.get(1), 2, "不是有效的JSON");
+        assertRecord(records.get(2), 3, "status 只能是0或1");
+        assertRecord(records.get(3), 4, null);
+    }
+
+    @Test
+    void jsonlSkipResumesAfterCheckpoint() throws IOException {
+        try (DrugImportReader reader = reader(DrugImportReader.Format.JSONL,
+                "{\"name\":\"药品1\",\"barcode\":\"6901234567892\"}\n"
+                        + "\n"
+                        + "{bad\n"
+                        + "{\"name\":\"药品3\",\"barcode\":\"6901234567878\"}\n")) {
+            reader.skip(2);
+            DrugImportReader.Record record = reader.next();
+            assertRecord(record, 3, null);
+            assertEquals("药品3", record.drug.getName());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void formatOf() {
+        assertEquals(DrugImportReader.Format.CSV, DrugImportReader.Format.of(" csv "));
+        assertEquals(DrugImportReader.Format.JSONL, DrugImportReader.Format.of("JSONL"));
+        assertThrows(IllegalArgumentException.class, () -> DrugImportReader.Format.of("xlsx"));
+        assertThrows(IllegalArgumentException.class, () -> DrugImportReader.Format.of(null));
+    }
+
+    private static void assertRecord(DrugImportReader.Record record, long number, String error) {
+        assertNotNull(record);
+        assertEquals(number, record.number);
+        assertEquals(error, record.error);
+        if (error == null) {
+            assertNotNull(record.drug);
+        } else {
+            assertNull(record.drug);
+        }
+    }
+
+    private static List<DrugImportReader.Record> readAll(DrugImportReader.Format format, String content)
+            throws IOException {
+        List<DrugImportReader.Record> records = new ArrayList<>();
+        try (DrugImportReader reader = reader(format, content)) {
+            DrugImportReader.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static DrugImportReader reader(DrugImportReader.Format format, String content) throws IOException {
+        return new DrugImportReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
@@ -0,0 +1,108 @@
+package com.health.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BarcodeUtils 条形码校验测试
+ *
+ * @author Health Team
+ * @since 2024-01-20
+ */
+class BarcodeUtilsTest {
+
+    @Test
+    void ean13() {
+        assertTrue(BarcodeUtils.isValidGtin("6901234567892"));
+        assertTrue(BarcodeUtils.isValidGtin("4006381333931"));
+        assertFalse(BarcodeUtils.isValidGtin("6901234567891"));
+        assertFalse(BarcodeUtils.isValidGtin("4006381333932"));
+    }
+
+    @Test
+    void ean8() {
+        assertTrue(BarcodeUtils.isValidGtin("96385074"));
+        assertFalse(BarcodeUtils.isValidGtin("96385075"));
+    }
+
+    @Test
+    void upcA() {
+        assertTrue(BarcodeUtils.isValidGtin("036000291452"));
+        assertTrue(BarcodeUtils.isValidGtin("042100005264"));
+        assertFalse(BarcodeUtils.isValidGtin("036000291453"));
+    }
+
+    /**
+     * 末位0-2：厂商码后补末位和两个0，商品码前补两个0
+     */
+    @Test
+    void upcEManufacturerDigitBranch() {
+        // 0425261 -> 04210000526
+        assertTrue(BarcodeUtils.isValidGtin("04252614"));
+        assertFalse(BarcodeUtils.isValidGtin("04252615"));
+        // 0654320 -> 06500000432
+        assertTrue(BarcodeUtils.isValidGtin("06543208"));
+        assertFalse(BarcodeUtils.isValidGtin("06543209"));
+    }
+
+    /**
+     * 末位3：厂商码取前三位补两个0，商品码取后两位
+     */
+    @Test
+    void upcEThreeDigitManufacturerBranch() {
+        // 0123453 -> 01230000045
+        assertTrue(BarcodeUtils.isValidGtin("01234531"));
+        assertFalse(BarcodeUtils.isValidGtin("01234532"));
+    }
+
+    /**
+     * 末位4：厂商码取前四位补一个0，商品码取第五位
+     */
+    @Test
+    void upcEFourDigitManufacturerBranch() {
+        // 1123454 -> 11234000005
+        assertTrue(BarcodeUtils.isValidGtin("11234540"));
+        assertFalse(BarcodeUtils.isValidGtin("11234541"));
+    }
+
+    /**
+     * 末位5-9：厂商码取前五位，商品码为末位。
+     * 展开后补的0不改变各位权重，校验位与按 EAN-8 计算的相同，这里只能验证被接受
+     */
+    @Test
+    void upcEProductDigitBranch() {
+        // 0123458 -> 01234500008
+        assertTrue(BarcodeUtils.isValidGtin("01234589"));
+        assertTrue(BarcodeUtils.isValidGtin("19876559"));
+        assertFalse(BarcodeUtils.isValidGtin("01234580"));
+    }
+
+    /**
+     * 数字系统只能是0或1：2425261 按 UPC-E 展开的校验位为8，但首位为2时不按 UPC-E 处理
+     */
+    @Test
+    void upcERejectsOtherNumberSystems() {
+        assertFalse(BarcodeUtils.isValidGtin("24252618"));
+    }
+
+    @Test
+    void nonDigit() {
+        assertFalse(BarcodeUtils.isValidGtin("69012345678X2"));
+        assertFalse(BarcodeUtils.isValidGtin("9638507A"));
+        assertFalse(BarcodeUtils.isValidGtin("03600029145 "));
+        assertFalse(BarcodeUtils.isValidGtin("-36000291452"));
+    }
+
+    @Test
+    void wrongLength() {
+        assertFalse(BarcodeUtils.isValidGtin(null));
+        assertFalse(BarcodeUtils.isValidGtin(""));
+        assertFalse(BarcodeUtils.isValidGtin("9638507"));
+        assertFalse(BarcodeUtils.isValidGtin("963850740"));
+        assertFalse(BarcodeUtils.isValidGtin("0360002914"));
+        assertFalse(BarcodeUtils.isValidGtin("03600029145"));
+        assertFalse(BarcodeUtils.isValidGtin("69012345678920"));
+    }
+}
@@ -70,14 +70,16 @@ CREATE TABLE drugs (
     execution_standard VARCHAR(200) COMMENT '执行标准',
     main_diseases TEXT COMMENT '主治疾病',
     is_complete BOOLEAN DEFAULT FALSE COMMENT '信息是否完整',
-    data_source VARCHAR(50) DEFAULT 'yaozhi_api' COMMENT '数据来源：yaozhi_api, manual, barcode',
+    data_source VARCHAR(50) DEFAULT 'yaozhi_api' COMMENT '数据来源：yaozhi_api, manual, barcode, import',
+    enrich_attempted_at TIMESTAMP NULL COMMENT '最近一次后台补全时间',
     status TINYINT DEFAULT 1 COMMENT '状态：0-禁用，1-正常',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX idx_drug_id (drug_id),
     INDEX idx_name_manufacturer (name, manufacturer),
     INDEX idx_complete_source (is_complete, data_source),
-    INDEX idx_barcode (barcode)
+    UNIQUE KEY uk_barcode (barcode),
+    UNIQUE KEY uk_approval_number (approval_number)
 ) COMMENT='药品信息表';
 
 -- 药品搜索缓存表
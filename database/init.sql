@@ -42,14 +42,75 @@ CREATE TABLE IF NOT EXISTS drugs (
     validity_period VARCHAR(50) COMMENT '有效期',
     image_url VARCHAR(500) COMMENT '药品图片URL',
     price DECIMAL(10,2) COMMENT '参考价格',
+    drug_id VARCHAR(100) COMMENT '药品业务ID（来自API）',
+    is_complete BOOLEAN DEFAULT FALSE COMMENT '说明书信息是否完整',
+    data_source VARCHAR(50) DEFAULT 'manual' COMMENT '数据来源：yaozhi_api, manual, barcode, import',
+    enrich_attempted_at TIMESTAMP NULL COMMENT '最近一次后台补全时间',
     status TINYINT DEFAULT 1 COMMENT '状态：0-下架，1-正常',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX idx_name (name),
-    INDEX idx_barcode (barcode),
-    INDEX idx_approval_number (approval_number)
+    UNIQUE KEY uk_barcode (barcode),
+    UNIQUE KEY uk_approval_number (approval_number),
+    INDEX idx_complete_source (is_complete, data_source)
 ) COMMENT='药品信息表';
 
+-- 药品搜索缓存表
+CREATE TABLE IF NOT EXISTS drug_search_cache (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '缓存ID',
+    search_keyword VARCHAR(200) NOT NULL COMMENT '搜索关键词（归一化后）',
+    search_type TINYINT NOT NULL COMMENT '搜索类型：1-药品名称，2-药企名称，3-药准字号',
+    page_no INT NOT NULL DEFAULT 1 COMMENT '页码',
+    api_source VARCHAR(50) DEFAULT 'yaozhi_api' COMMENT 'API来源',
+    cache_data JSON COMMENT '缓存的搜索结果数据',
+    result_count INT DEFAULT 0 COMMENT '结果数量',
+    hit_count INT DEFAULT 0 COMMENT '命中次数',
+    last_hit_time TIMESTAMP NULL COMMENT '最后命中时间',
+    expire_time TIMESTAMP NOT NULL COMMENT '过期时间',
+    status TINYINT DEFAULT 1 COMMENT '状态：0-失效，1-有效',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_keyword_type_page (search_keyword, search_type, page_no),
+    INDEX idx_expire_status (expire_time, status)
+) COMMENT='药品搜索缓存表';
+
+-- 药品批量导入任务表
+CREATE TABLE IF NOT EXISTS drug_import_jobs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+    file_name VARCHAR(200) COMMENT '原始文件名',
+    file_path VARCHAR(500) NOT NULL COMMENT '服务器上的暂存文件路径',
+    format VARCHAR(10) NOT NULL COMMENT '文件格式：csv, jsonl',
+    status VARCHAR(20) NOT NULL COMMENT '状态：PENDING, RUNNING, COMPLETED, FAILED, INTERRUPTED',
+    total_bytes BIGINT DEFAULT 0 COMMENT '文件大小（字节）',
+    checkpoint_record BIGINT DEFAULT 0 COMMENT '已全部落库的记录数（断点）',
+    read_records BIGINT DEFAULT 0 COMMENT '已读取记录数',
+    upserted_records BIGINT DEFAULT 0 COMMENT '已写入记录数（插入或更新）',
+    invalid_records BIGINT DEFAULT 0 COMMENT '校验未通过记录数',
+    duplicate_records BIGINT DEFAULT 0 COMMENT '批次内重复记录数',
+    error_message VARCHAR(1000) COMMENT '失败原因',
+    started_at TIMESTAMP NULL COMMENT '最近一次开始时间',
+    finished_at TIMESTAMP NULL COMMENT '结束时间',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_status (status)
+) COMMENT='药品批量导入任务表';
+
+-- API调用日志表
+CREATE TABLE IF NOT EXISTS api_call_logs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '日志ID',
+    user_id BIGINT COMMENT '用户ID',
+    api_type VARCHAR(50) NOT NULL COMMENT 'API类型：drug_search, drug_detail, barcode_query',
+    api_url VARCHAR(500) NOT NULL COMMENT 'API地址',
+    request_params VARCHAR(1000) COMMENT '请求参数',
+    response_code INT COMMENT '响应状态码',
+    response_time_ms INT COMMENT '响应时间（毫秒）',
+    success BOOLEAN DEFAULT TRUE COMMENT '是否成功',
+    error_message VARCHAR(500) COMMENT '错误信息',
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) COMMENT '调用时间',
+    INDEX idx_api_type_time (api_type, created_at),
+    INDEX idx_time_success (created_at, success)
+) COMMENT='API调用日志表';
+
 -- 用药计划表
 CREATE TABLE IF NOT EXISTS medication_plans (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '计划ID',
@@ -155,4 +216,6 @@ INSERT INTO admins (username, password, real_name, role) VALUES
 CREATE INDEX idx_users_openid ON users(openid);
 CREATE INDEX idx_medication_plans_user_date ON medication_plans(user_id, start_date);
 CREATE INDEX idx_medication_records_user_time ON medication_records(user_id, scheduled_time);
-CREATE INDEX idx_vital_signs_user_time ON vital_signs(user_id, measurement_time);
\ No newline at end of file
+CREATE INDEX idx_vital_signs_user_time ON vital_signs(user_id, measurement_time);
+CREATE INDEX idx_users_created_id ON users(created_at, id);
+CREATE INDEX idx_drugs_created_id ON drugs(created_at, id);
\ No newline at end of file
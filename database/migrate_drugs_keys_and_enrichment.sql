@@ -0,0 +1,113 @@
+-- 药品表升级脚本：为已有数据库补齐批量导入/合并写入依赖的唯一键和后台补全字段
+-- init.sql 中的 drugs 表定义只对新库生效（CREATE TABLE IF NOT EXISTS），已有的库需执行本脚本。
+-- 脚本可重复执行：字段、索引已存在时跳过。
+--
+-- 1. 补齐 drug_id、is_complete、data_source、enrich_attempted_at 字段和 idx_complete_source 索引
+-- 2. 按条形码、批准文号去重：保留ID最小的记录，重复记录上的用药计划改指向保留的记录后删除
+-- 3. 建立 uk_barcode、uk_approval_number 唯一键（INSERT ... ON DUPLICATE KEY UPDATE 按其合并），
+--    删除被唯一键覆盖的普通索引 idx_barcode、idx_approval_number
+USE Health_DB;
+
+DELIMITER //
+
+DROP PROCEDURE IF EXISTS sp_migrate_drugs_keys_and_enrichment //
+
+CREATE PROCEDURE sp_migrate_drugs_keys_and_enrichment()
+BEGIN
+    -- 后台补全字段
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND COLUMN_NAME = 'drug_id') THEN
+        ALTER TABLE drugs ADD COLUMN drug_id VARCHAR(100) COMMENT '药品业务ID（来自API）' AFTER price;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND COLUMN_NAME = 'is_complete') THEN
+        ALTER TABLE drugs ADD COLUMN is_complete BOOLEAN DEFAULT FALSE COMMENT '说明书信息是否完整' AFTER drug_id;
+        -- 与 DrugEnrichmentService.isComplete 的判断一致
+        UPDATE drugs SET is_complete = TRUE
+        WHERE (indications IS NOT NULL AND TRIM(indications) NOT IN ('', '尚不明确'))
+           OR (dosage_usage IS NOT NULL AND TRIM(dosage_usage) NOT IN ('', '详见说明书'))
+           OR (contraindications IS NOT NULL AND TRIM(contraindications) <> '')
+           OR (adverse_reactions IS NOT NULL AND TRIM(adverse_reactions) <> '');
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND COLUMN_NAME = 'data_source') THEN
+        ALTER TABLE drugs ADD COLUMN data_source VARCHAR(50) DEFAULT 'manual'
+            COMMENT '数据来源：yaozhi_api, manual, barcode, import' AFTER is_complete;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND COLUMN_NAME = 'enrich_attempted_at') THEN
+        ALTER TABLE drugs ADD COLUMN enrich_attempted_at TIMESTAMP NULL COMMENT '最近一次后台补全时间' AFTER data_source;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND INDEX_NAME = 'idx_complete_source') THEN
+        ALTER TABLE drugs ADD INDEX idx_complete_source (is_complete, data_source);
+    END IF;
+
+    -- 按条形码去重
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND INDEX_NAME = 'uk_barcode') THEN
+        DROP TEMPORARY TABLE IF EXISTS tmp_drug_duplicates;
+        CREATE TEMPORARY TABLE tmp_drug_duplicates (
+            duplicate_id BIGINT PRIMARY KEY,
+            keep_id BIGINT NOT NULL
+        );
+        INSERT INTO tmp_drug_duplicates (duplicate_id, keep_id)
+        SELECT d.id, k.keep_id
+        FROM drugs d
+        JOIN (SELECT barcode, MIN(id) AS keep_id FROM drugs
+              WHERE barcode IS NOT NULL GROUP BY barcode HAVING COUNT(*) > 1) k
+            ON d.barcode = k.barcode AND d.id <> k.keep_id;
+
+        UPDATE medication_plans mp
+        JOIN tmp_drug_duplicates t ON mp.drug_id = t.duplicate_id
+        SET mp.drug_id = t.keep_id;
+        DELETE d FROM drugs d JOIN tmp_drug_duplicates t ON d.id = t.duplicate_id;
+        DROP TEMPORARY TABLE tmp_drug_duplicates;
+
+        ALTER TABLE drugs ADD UNIQUE KEY uk_barcode (barcode);
+    END IF;
+
+    -- 按批准文号去重
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND INDEX_NAME = 'uk_approval_number') THEN
+        DROP TEMPORARY TABLE IF EXISTS tmp_drug_duplicates;
+        CREATE TEMPORARY TABLE tmp_drug_duplicates (
+            duplicate_id BIGINT PRIMARY KEY,
+            keep_id BIGINT NOT NULL
+        );
+        INSERT INTO tmp_drug_duplicates (duplicate_id, keep_id)
+        SELECT d.id, k.keep_id
+        FROM drugs d
+        JOIN (SELECT approval_number, MIN(id) AS keep_id FROM drugs
+              WHERE approval_number IS NOT NULL GROUP BY approval_number HAVING COUNT(*) > 1) k
+            ON d.approval_number = k.approval_number AND d.id <> k.keep_id;
+
+        UPDATE medication_plans mp
+        JOIN tmp_drug_duplicates t ON mp.drug_id = t.duplicate_id
+        SET mp.drug_id = t.keep_id;
+        DELETE d FROM drugs d JOIN tmp_drug_duplicates t ON d.id = t.duplicate_id;
+        DROP TEMPORARY TABLE tmp_drug_duplicates;
+
+        ALTER TABLE drugs ADD UNIQUE KEY uk_approval_number (approval_number);
+    END IF;
+
+    -- 唯一键已覆盖的普通索引
+    IF EXISTS (SELECT 1 FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND INDEX_NAME = 'idx_barcode') THEN
+        ALTER TABLE drugs DROP INDEX idx_barcode;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'drugs' AND INDEX_NAME = 'idx_approval_number') THEN
+        ALTER TABLE drugs DROP INDEX idx_approval_number;
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL sp_migrate_drugs_keys_and_enrichment();
+DROP PROCEDURE sp_migrate_drugs_keys_and_enrichment;